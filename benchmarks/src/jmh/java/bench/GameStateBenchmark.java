@@ -0,0 +1,86 @@
+package bench;
+
+import model.GameState;
+import model.Move;
+import model.MoveEventRing;
+import model.Snapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the rules engine on empty, mid-game and near-terminal positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameStateBenchmark {
+    @Param({Positions.EMPTY, Positions.MIDGAME, Positions.ENDGAME})
+    public String position;
+
+    private GameState state;
+    private GameState published;                 // same position with a spectator attached
+    private final GameState target = new GameState();
+    private int move;
+
+    @Setup
+    public void setup() {
+        state = Positions.create(position);
+        int[] moves = new int[Move.COUNT];
+        state.legalMoves(moves);
+        move = moves[0];
+        published = Positions.create(position);
+        MoveEventRing ring = new MoveEventRing(256);
+        ring.subscribe(MoveEventRing.Policy.DROP);   // never polled, so it is simply overrun
+        published.setEventRing(ring);
+    }
+
+    /**
+     * makeMove followed by undoMove, so every invocation starts from the same position.
+     */
+    @Benchmark
+    public boolean makeMove() {
+        boolean legal = state.makeMove(move);
+        state.undoMove();
+        return legal;
+    }
+
+    /**
+     * makeMove and undoMove publishing both events to a ring; should not allocate.
+     */
+    @Benchmark
+    public boolean makeMovePublished() {
+        boolean legal = published.makeMove(move);
+        published.undoMove();
+        return legal;
+    }
+
+    @Benchmark
+    public Object getGameWinner() {
+        return state.getGameWinner();
+    }
+
+    @Benchmark
+    public boolean isDraw() {
+        return state.isDraw();
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return state.isGameOver();
+    }
+
+    @Benchmark
+    public GameState copyFrom() {
+        target.copyFrom(state);
+        return target;
+    }
+
+    /**
+     * What a publishing state pays per change to publish its snapshot.
+     */
+    @Benchmark
+    public Snapshot snapshot() {
+        return state.snapshot();
+    }
+}
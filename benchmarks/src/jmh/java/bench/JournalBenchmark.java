@@ -0,0 +1,58 @@
+package bench;
+
+import model.GameState;
+import model.Move;
+import org.openjdk.jmh.annotations.*;
+import persistence.MoveJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journalling throughput with many games writing to the same disk at once:
+ * each benchmark thread plays its own random game into its own journal file.
+ * Override the number of concurrent games with -t on the JMH command line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class JournalBenchmark {
+    @Param({"false", "true"})
+    public boolean sync;
+
+    private final GameState state = new GameState();
+    private final int[] moves = new int[Move.COUNT];
+    private final Random random = new Random(7);
+    private File file;
+    private MoveJournal journal;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("bench", ".journal");
+        journal = MoveJournal.open(file, state, sync);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        file.delete();
+    }
+
+    /**
+     * One move (or a new game once the last one ended) recorded in the journal.
+     */
+    @Benchmark
+    public GameState journalMove() throws IOException {
+        int n = state.legalMoves(moves);
+        if (n == 0) {
+            state.reset();
+        } else {
+            state.makeMove(moves[random.nextInt(n)]);
+        }
+        journal.update(state);
+        return state;
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import model.GameState;
+import org.openjdk.jmh.annotations.*;
+import persistence.GamePersistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text, binary and Java serialization round trips through a temporary file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistenceBenchmark {
+    @Param({Positions.EMPTY, Positions.MIDGAME, Positions.ENDGAME})
+    public String position;
+
+    private GameState state;
+    private File textFile;
+    private File serialFile;
+    private File binaryFile;
+
+    @Setup
+    public void setup() throws IOException {
+        state = Positions.create(position);
+        textFile = File.createTempFile("bench", ".txt");
+        serialFile = File.createTempFile("bench", ".ser");
+        binaryFile = File.createTempFile("bench", ".bin");
+        GamePersistence.saveAsText(state, textFile);
+        GamePersistence.saveAsBinary(state, binaryFile);
+        state.saveToFile(serialFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        textFile.delete();
+        serialFile.delete();
+        binaryFile.delete();
+    }
+
+    @Benchmark
+    public File saveAsText() throws IOException {
+        GamePersistence.saveAsText(state, textFile);
+        return textFile;
+    }
+
+    @Benchmark
+    public GameState loadFromText() throws IOException {
+        return GamePersistence.loadFromText(textFile);
+    }
+
+    @Benchmark
+    public File saveAsBinary() throws IOException {
+        GamePersistence.saveAsBinary(state, binaryFile);
+        return binaryFile;
+    }
+
+    @Benchmark
+    public GameState loadFromBinary() throws IOException {
+        return GamePersistence.loadFromText(binaryFile);
+    }
+
+    @Benchmark
+    public File saveToFile() throws IOException {
+        state.saveToFile(serialFile);
+        return serialFile;
+    }
+
+    @Benchmark
+    public GameState loadFromFile() throws IOException, ClassNotFoundException {
+        return GameState.loadFromFile(serialFile);
+    }
+}
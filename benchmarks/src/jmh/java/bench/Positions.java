@@ -0,0 +1,45 @@
+package bench;
+
+import model.GameState;
+import model.Move;
+
+import java.util.Random;
+
+/**
+ * Reproducible benchmark positions: an empty board, a mid-game position and
+ * a position two moves before the end of a random game.
+ */
+final class Positions {
+    static final String EMPTY = "EMPTY";
+    static final String MIDGAME = "MIDGAME";
+    static final String ENDGAME = "ENDGAME";
+
+    private Positions() {
+    }
+
+    static GameState create(String kind) {
+        GameState state = new GameState();
+        Random random = new Random(42);
+        int[] moves = new int[Move.COUNT];
+        switch (kind) {
+            case EMPTY -> {
+            }
+            case MIDGAME -> {
+                for (int i = 0; i < 30; i++) {
+                    int n = state.legalMoves(moves);
+                    if (n == 0) break;
+                    state.makeMove(moves[random.nextInt(n)]);
+                }
+            }
+            case ENDGAME -> {
+                for (int n = state.legalMoves(moves); n != 0; n = state.legalMoves(moves)) {
+                    state.makeMove(moves[random.nextInt(n)]);
+                }
+                state.undoMove();
+                state.undoMove();
+            }
+            default -> throw new IllegalArgumentException(kind);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import model.GameState;
+import org.openjdk.jmh.annotations.*;
+import view.GamePanel;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offscreen painting of the board into a BufferedImage (run headless):
+ * a full repaint, and the dirty-region repaints that follow a move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+    @Param({Positions.EMPTY, Positions.MIDGAME, Positions.ENDGAME})
+    public String position;
+
+    @Param({"750", "1500"})
+    public int size;
+
+    private GameState state;
+    private GamePanel panel;
+    private BufferedImage canvas;
+    private Graphics2D graphics;
+    private Graphics2D clipped;                 // clipped to about one sub-board, like a dirty-region repaint
+    private final int[] moves = new int[81];
+
+    @Setup
+    public void setup() throws IOException {
+        state = Positions.create(position);
+        panel = new GamePanel(state, image("/Plansza4.png"), image("/x.png"), image("/0.png"), () -> { });
+        panel.setSize(size, size);
+        canvas = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        graphics = canvas.createGraphics();
+        clipped = (Graphics2D) graphics.create();
+        clipped.clipRect(size / 3, size / 3, size / 3, size / 3);
+        panel.paint(graphics);
+    }
+
+    @TearDown
+    public void tearDown() {
+        clipped.dispose();
+        graphics.dispose();
+    }
+
+    private static BufferedImage image(String path) throws IOException {
+        return ImageIO.read(RenderBenchmark.class.getResourceAsStream(path));
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        panel.paint(graphics);
+        return canvas;
+    }
+
+    /**
+     * A move and its undo, each followed by a repaint of one sub-board's
+     * region: the per-move cost of the layered renderer.
+     */
+    @Benchmark
+    public BufferedImage moveRepaint() {
+        if (state.legalMoves(moves) == 0) return canvas;
+        state.makeMove(moves[0]);
+        panel.paint(clipped);
+        state.undoMove();
+        panel.paint(clipped);
+        return canvas;
+    }
+}
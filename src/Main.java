@@ -1,7 +1,9 @@
+import view.ImageCache;
 import view.MainMenu;
 
 public class Main {
     public static void main(String[] args) {
+        ImageCache.preload();   // decode all images while Swing starts up
         javax.swing.SwingUtilities.invokeLater(MainMenu::new);
     }
 }
\ No newline at end of file
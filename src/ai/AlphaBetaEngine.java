@@ -0,0 +1,287 @@
+package ai;
+
+import model.GameState;
+import model.Move;
+import model.Player;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Deterministic iterative-deepening negamax search with alpha-beta pruning.
+ * Moves are ordered by the transposition table move, two killer moves per ply
+ * and the history heuristic. With only a depth limit the result for a given
+ * position and fresh engine is fully reproducible; a time limit stops the
+ * search between nodes and returns the last completed iteration.
+ *
+ * With more than one thread the engine runs a Lazy SMP search: helper
+ * engines search the same position at staggered depths and share what they
+ * find only through a lock-free SharedTranspositionTable.
+ *
+ * stop() ends every search entered before it, even one still waiting for the
+ * engine: each search captures the stop count on entry and runs only while it
+ * is unchanged, so no later reset can lose a stop.
+ */
+public class AlphaBetaEngine implements Engine {
+    public static final int WIN = 1_000_000;           // score of a win at ply 0
+    public static final int MAX_PLY = 82;               // 81 moves plus the root
+    private static final int INFINITY = WIN + 1;
+
+    private final TranspositionTable table;
+    private final long timeMillis;                      // 0 = no time limit
+    private final int maxDepth;
+    private final GameState state = new GameState();
+    private final int[][] moves = new int[MAX_PLY][Move.COUNT];
+    private final int[][] order = new int[MAX_PLY][Move.COUNT];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[2][Move.COUNT];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private Consumer<SearchResult> listener;            // told about every finished iteration
+    private final AlphaBetaEngine[] helpers;            // Lazy SMP helper searches
+    private final ExecutorService helperPool;
+    private int firstDepth = 1;                         // helpers start at staggered depths
+
+    private AtomicLong stops = new AtomicLong();        // number of stop() calls so far, shared with helpers
+    private long generation;                            // stop count the running search started with
+    private volatile boolean cancelled;                 // a helper's search was ended by the main search
+    private boolean aborted;
+    private long nodes;
+    private long deadline;
+
+    /**
+     * Creates a single-threaded engine with a 16 MB table, the given time
+     * budget per move in milliseconds (0 for none) and a maximum depth.
+     */
+    public AlphaBetaEngine(long timeMillis, int maxDepth) {
+        this(new ArrayTranspositionTable(16), 1, timeMillis, maxDepth);
+    }
+
+    /**
+     * Creates an engine searching with the given number of threads.
+     * More than one thread requires a SharedTranspositionTable.
+     */
+    public AlphaBetaEngine(TranspositionTable table, int threads, long timeMillis, int maxDepth) {
+        if (timeMillis <= 0 && maxDepth <= 0) {
+            throw new IllegalArgumentException("a time or depth limit is required");
+        }
+        if (threads > 1 && !(table instanceof SharedTranspositionTable)) {
+            throw new IllegalArgumentException("multi-threaded search needs a SharedTranspositionTable");
+        }
+        this.table = table;
+        this.timeMillis = timeMillis;
+        this.maxDepth = maxDepth > 0 ? Math.min(maxDepth, MAX_PLY - 1) : MAX_PLY - 1;
+        this.helpers = new AlphaBetaEngine[Math.max(0, threads - 1)];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new AlphaBetaEngine(table, 1, 0, this.maxDepth);
+            helpers[i].firstDepth = 1 + (i + 1) % 2;
+            helpers[i].stops = stops;
+        }
+        this.helperPool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, r -> {
+            Thread t = new Thread(r, "alpha-beta-helper");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Registers a callback invoked after each completed iteration.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public int chooseMove(GameState root) {
+        return search(root).getBestMove();
+    }
+
+    /**
+     * Ends the running search, and any caller still waiting for the engine.
+     * Never blocks.
+     */
+    @Override
+    public void stop() {
+        stops.incrementAndGet();
+    }
+
+    /**
+     * Searches the position within the configured limits.
+     */
+    public SearchResult search(GameState root) {
+        return search(root, stops.get());
+    }
+
+    private synchronized SearchResult search(GameState root, long generation) {
+        this.generation = generation;
+        table.newSearch();
+        if (helpers.length == 0) return searchAlone(root);
+
+        Future<?>[] running = new Future<?>[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            AlphaBetaEngine helper = helpers[i];
+            helper.generation = generation;
+            helper.cancelled = false;
+            running[i] = helperPool.submit(() -> helper.searchAlone(root));
+        }
+        SearchResult result = searchAlone(root);
+        long totalNodes = result.getNodes();
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].cancelled = true;
+            try {
+                running[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("helper search failed", e.getCause());
+            }
+            totalNodes += helpers[i].nodes;
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(),
+                totalNodes, result.getNanos(), result.getPrincipalVariation());
+    }
+
+    private SearchResult searchAlone(GameState root) {
+        long start = System.nanoTime();
+        deadline = timeMillis > 0 ? start + timeMillis * 1_000_000L : Long.MAX_VALUE;
+        aborted = false;
+        nodes = 0;
+        state.copyFrom(root);
+        for (int[] k : killers) Arrays.fill(k, -1);
+        for (int[] h : history) Arrays.fill(h, 0);
+
+        int[] legal = new int[Move.COUNT];
+        int count = state.legalMoves(legal);
+        SearchResult result = new SearchResult(count == 0 ? -1 : legal[0], 0, 0, 0, 0, new int[0]);
+        if (count <= 1) return result;
+
+        int empty = 0;                                   // no game can last longer than this
+        for (int sb = 0; sb < 9; sb++) empty += Integer.bitCount(state.getCellMask(Player.NONE, sb));
+
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, empty); depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (aborted) break;
+            result = new SearchResult(pv[0][0], score, depth, nodes, System.nanoTime() - start,
+                    Arrays.copyOf(pv[0], pvLength[0]));
+            if (listener != null) listener.accept(result);
+            if (Math.abs(score) > WIN - MAX_PLY) break;  // forced result found
+        }
+        return result;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (state.isGameOver()) return -(WIN - ply);    // the previous move won
+        if ((++nodes & 1023) == 0 && (cancelled || stops.get() != generation
+                || System.nanoTime() >= deadline)) {
+            aborted = true;
+        }
+        if (aborted) return 0;
+
+        int[] list = moves[ply];
+        int count = state.legalMoves(list);
+        if (count == 0) return 0;                        // draw
+        if (depth <= 0 || ply == MAX_PLY - 1) return Evaluator.evaluate(state);
+
+        long key = state.getHash();
+        int alphaOrig = alpha;
+        int ttMove = TranspositionTable.NO_MOVE;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            ttMove = TranspositionTable.moveOf(entry);
+            if (ply > 0 && TranspositionTable.depthOf(entry) >= depth) {
+                int score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                switch (TranspositionTable.boundOf(entry)) {
+                    case TranspositionTable.EXACT -> { return score; }
+                    case TranspositionTable.LOWER -> alpha = Math.max(alpha, score);
+                    case TranspositionTable.UPPER -> beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) return score;
+            }
+        }
+
+        orderMoves(list, count, ply, ttMove);
+        int side = state.getCurrentPlayer().ordinal();
+        int best = -INFINITY;
+        int bestMove = list[0];
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            state.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            state.undoMove();
+            if (aborted) return 0;
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    pv[ply][ply] = move;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+                    if (alpha >= beta) {
+                        if (killers[ply][0] != move) {
+                            killers[ply][1] = killers[ply][0];
+                            killers[ply][0] = move;
+                        }
+                        history[side][move] += depth * depth;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, bestMove, depth, bound, toTable(best, ply));
+        return best;
+    }
+
+    /**
+     * Sorts moves by descending priority: table move, sub-board wins, killers, history.
+     */
+    private void orderMoves(int[] list, int count, int ply, int ttMove) {
+        int[] keys = order[ply];
+        int side = state.getCurrentPlayer().ordinal();
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            int key;
+            if (move == ttMove) key = 1 << 30;
+            else if (Evaluator.winsSubBoard(state, move)) key = 1 << 29;
+            else if (move == killers[ply][0]) key = 1 << 28;
+            else if (move == killers[ply][1]) key = (1 << 28) - 1;
+            else key = Math.min(history[side][move], (1 << 28) - 2);
+            keys[i] = key;
+        }
+        // Insertion sort: lists are short and often nearly sorted
+        for (int i = 1; i < count; i++) {
+            int move = list[i];
+            int key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                list[j + 1] = list[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            list[j + 1] = move;
+            keys[j + 1] = key;
+        }
+    }
+
+    // Win scores are stored relative to the node so they stay valid at any ply
+    private static int toTable(int score, int ply) {
+        if (score > WIN - MAX_PLY) return score + ply;
+        if (score < -(WIN - MAX_PLY)) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > WIN - MAX_PLY) return score - ply;
+        if (score < -(WIN - MAX_PLY)) return score + ply;
+        return score;
+    }
+}
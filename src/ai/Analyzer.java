@@ -0,0 +1,36 @@
+package ai;
+
+import model.GameState;
+import persistence.GamePersistence;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command-line analysis of a saved position with the alpha-beta engine.
+ * Usage: java ai.Analyzer [save file] [time ms] [max depth] [threads] [hash MB]
+ * Defaults to save.txt, 5000 ms, no depth limit, one thread and 64 MB.
+ * With a time of 0 and one thread the search runs to the given depth and
+ * the output is reproducible.
+ */
+public class Analyzer {
+    public static void main(String[] args) throws IOException {
+        File file = new File(args.length > 0 ? args[0] : "save.txt");
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long hashMb = args.length > 4 ? Long.parseLong(args[4]) : 64;
+
+        GameState state = GamePersistence.loadFromText(file);
+        System.out.println("Position " + file + ", " + state.getCurrentPlayer() + " to move, "
+                + state.legalMoveCount() + " legal moves");
+
+        SharedTranspositionTable table = new SharedTranspositionTable(hashMb);
+        AlphaBetaEngine engine = new AlphaBetaEngine(table, threads, millis, depth);
+        engine.setListener(System.out::println);
+        SearchResult result = engine.search(state);
+        System.out.println("best move: board " + result.getBestMove() / 9 + ", box " + result.getBestMove() % 9
+                + " (" + result.getNodes() + " nodes on " + threads + " threads)");
+        System.out.println("hash table: " + table);
+    }
+}
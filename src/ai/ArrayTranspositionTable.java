@@ -0,0 +1,65 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Single-threaded transposition table on the Java heap.
+ * Entries live in two parallel long arrays and are grouped in buckets of two:
+ * the first slot keeps the deepest (or most recent generation's) result,
+ * the second slot is always overwritten.
+ */
+public class ArrayTranspositionTable implements TranspositionTable {
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;                     // bucket index mask (even indices)
+    private int generation;                     // bumped once per search
+
+    /**
+     * Creates a table using about the given number of megabytes.
+     * The entry count is rounded down to a power of two.
+     */
+    public ArrayTranspositionTable(int megabytes) {
+        long entries = Math.max(2, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Math.min(1 << 30, Long.highestOneBit(entries));
+        keys = new long[size];
+        data = new long[size];
+        mask = (size - 1) & ~1;
+    }
+
+    @Override
+    public long probe(long key) {
+        int i = (int) key & mask;
+        if (keys[i] == key && data[i] != 0) return data[i];
+        if (keys[i + 1] == key && data[i + 1] != 0) return data[i + 1];
+        return 0;
+    }
+
+    @Override
+    public void store(long key, int move, int depth, int bound, int score) {
+        long entry = TranspositionTable.pack(move, depth, bound, score, generation);
+        int i = (int) key & mask;
+        if (keys[i] == key || TranspositionTable.prefersReplacing(data[i], depth, generation)) {
+            keys[i] = key;
+            data[i] = entry;
+        } else {
+            keys[i + 1] = key;
+            data[i + 1] = entry;
+        }
+    }
+
+    @Override
+    public void newSearch() {
+        generation++;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    @Override
+    public long capacity() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,42 @@
+package ai;
+
+import model.GameState;
+
+/**
+ * A move-choosing strategy for the side to move in a GameState.
+ * Moves are encoded as in Move.encode (sub-board * 9 + cell).
+ */
+public interface Engine {
+    /**
+     * Picks a move for the current player, or returns -1 if there is none.
+     * An engine may try moves on the given state but must leave it as it was.
+     */
+    int chooseMove(GameState state);
+
+    /**
+     * Asks a running chooseMove to return its best move so far.
+     */
+    default void stop() {
+    }
+
+    /**
+     * Starts searching, in the background, a position where the opponent is
+     * to move, so the next chooseMove can reuse the work if the opponent's
+     * reply was searched. Returns at once; engines that cannot ponder ignore it.
+     */
+    default void startPondering(GameState state) {
+    }
+
+    /**
+     * Stops pondering and discards it.
+     */
+    default void stopPondering() {
+    }
+
+    /**
+     * Describes how pondering has paid off so far, or "" if the engine does not ponder.
+     */
+    default String getPonderStats() {
+        return "";
+    }
+}
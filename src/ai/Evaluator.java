@@ -0,0 +1,45 @@
+package ai;
+
+import model.GameState;
+import model.Player;
+import model.SubBoard;
+
+/**
+ * Static evaluation of non-terminal positions for the alpha-beta search.
+ * Scores are from the point of view of the side to move: each sub-board's
+ * table score (won boards, open two-in-a-rows, the centre) weighted by its
+ * place on the big board, plus two-in-a-row threats on the big board.
+ * Every term is a SubBoard table lookup, so a leaf costs ten lookups.
+ */
+final class Evaluator {
+    private static final int[] SQUARE_WEIGHT = {3, 2, 3, 2, 4, 2, 3, 2, 3};   // corners and centre matter most
+    private static final int META_THREAT = 150;
+
+    private Evaluator() {
+    }
+
+    /**
+     * Evaluates the position for the current player.
+     */
+    static int evaluate(GameState state) {
+        int score = 0;                                       // from X's point of view
+        for (int sb = 0; sb < 9; sb++) {
+            score += SQUARE_WEIGHT[sb] * SubBoard.score(state.getSubBoardIndex(sb));
+        }
+        // Sub-boards the opponent won or that are drawn block big-board lines
+        int closed = state.getClosedMask();
+        int xWon = state.getWonMask(Player.X);
+        int oWon = state.getWonMask(Player.O);
+        score += META_THREAT * (SubBoard.threats(SubBoard.index(xWon, closed & ~xWon), Player.X)
+                - SubBoard.threats(SubBoard.index(oWon, closed & ~oWon), Player.X));
+        return state.getCurrentPlayer() == Player.X ? score : -score;
+    }
+
+    /**
+     * Returns true if playing the move wins its sub-board for the current player.
+     */
+    static boolean winsSubBoard(GameState state, int move) {
+        int own = state.getCellMask(state.getCurrentPlayer(), move / 9) | 1 << (move % 9);
+        return SubBoard.winner(SubBoard.index(own, 0)) != Player.NONE;
+    }
+}
@@ -0,0 +1,51 @@
+package ai;
+
+import model.GameState;
+import model.Move;
+
+/**
+ * One-ply greedy player: wins the game or a sub-board when it can, otherwise
+ * prefers moves that do not let the opponent win a sub-board next, picking
+ * randomly among equals. Not thread-safe: use one per thread.
+ */
+public class GreedyEngine implements Engine {
+    private final int[] moves = new int[Move.COUNT];
+    private final int[] replies = new int[Move.COUNT];
+    private final int[] best = new int[Move.COUNT];
+    private final RandomEngine random;
+
+    public GreedyEngine(long seed) {
+        this.random = new RandomEngine(seed);
+    }
+
+    @Override
+    public int chooseMove(GameState state) {
+        int count = state.legalMoves(moves);
+        if (count == 0) return -1;
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int score = Evaluator.winsSubBoard(state, move) ? 2 : 0;
+            state.makeMove(move);
+            if (state.isGameOver()) {
+                state.undoMove();
+                return move;
+            }
+            int n = state.legalMoves(replies);
+            for (int j = 0; j < n; j++) {
+                if (Evaluator.winsSubBoard(state, replies[j])) {
+                    score -= 3;
+                    break;
+                }
+            }
+            state.undoMove();
+            if (score > bestScore) {
+                bestScore = score;
+                ties = 0;
+            }
+            if (score == bestScore) best[ties++] = move;
+        }
+        return best[random.nextInt(ties)];
+    }
+}
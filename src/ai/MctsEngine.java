@@ -0,0 +1,453 @@
+package ai;
+
+import model.GameState;
+import model.Move;
+import model.MoveLog;
+import model.Player;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo Tree Search engine using root parallelism.
+ * Every worker grows its own UCT tree from the same root on a private copy
+ * of the state; at the end the root visit counts are summed and the most
+ * visited move wins. Trees are flat primitive arrays allocated once, and the
+ * workers walk the game with makeMove/undoMove on a reused state, so the
+ * engine adds no allocation of its own to the playout loop.
+ *
+ * While the opponent is to move the engine can ponder: some of the workers
+ * (half by default, to cap the CPU taken from the opponent) grow trees for
+ * the opponent's position. When chooseMove then gets that position plus one
+ * move, those workers re-root their trees at the child for that move and
+ * keep its playouts; the playout budget and, at the last measured rate, the
+ * time budget shrink by the reused playouts, so a hit buys a faster reply at
+ * the same strength. The most visited reply counts as the prediction.
+ *
+ * stop() ends every search and ponder entered before it, even one still
+ * waiting for the engine: each captures the stop count on entry and runs
+ * only while it is unchanged, so no later reset can lose a stop.
+ */
+public class MctsEngine implements Engine {
+    private static final double EXPLORATION = 1.41;     // UCT exploration constant
+    private static final int DEFAULT_NODES = 1 << 18;   // tree capacity per worker
+    private static final long PONDER_MILLIS = 60_000;   // longest ponder, should the opponent walk away
+    private static final int MIN_BUDGET_PERCENT = 10;   // time always spent on a reply after a ponder hit
+
+    private final Worker[] workers;
+    private final ForkJoinPool pool;
+    private final long timeMillis;                      // time budget per move (0 = none)
+    private final long maxPlayouts;                     // playout budget per move (0 = none)
+    private final AtomicLong stops = new AtomicLong();  // number of stop() calls so far
+
+    private long lastPlayouts;                          // playouts of the last search
+    private long lastNanos;                             // duration of the last search
+
+    private int ponderThreads;                          // workers used while pondering
+    private ForkJoinTask<?>[] pondering;                // running or finished ponder, null if none
+    private Search ponder;                              // its cancel token
+    private final GameState ponderRoot = new GameState();   // position pondered, opponent to move
+    private final GameState ponderCheck = new GameState();  // scratch for matching chooseMove's position
+    private long predictions;                           // ponders resolved by the opponent's move
+    private long hits;                                  // ... where it was the predicted move
+    private long reusedPlayouts;
+    private long searches;
+    private long searchNanos;
+
+    /**
+     * Creates an engine with one worker per core and a one second budget.
+     */
+    public MctsEngine() {
+        this(Runtime.getRuntime().availableProcessors(), 1000, 0);
+    }
+
+    /**
+     * Creates an engine.
+     * threads     number of parallel workers (trees)
+     * timeMillis  time budget per move in milliseconds, 0 for no time limit
+     * maxPlayouts total playout budget per move, 0 for no playout limit
+     */
+    public MctsEngine(int threads, long timeMillis, long maxPlayouts) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive");
+        if (timeMillis <= 0 && maxPlayouts <= 0) {
+            throw new IllegalArgumentException("a time or playout budget is required");
+        }
+        this.timeMillis = timeMillis;
+        this.maxPlayouts = maxPlayouts;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(DEFAULT_NODES, 0x9E3779B97F4A7C15L * (i + 1));
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.ponderThreads = Math.max(1, threads / 2);
+    }
+
+    /**
+     * Sets how many workers ponder (at most all of them).
+     */
+    public synchronized void setPonderThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive");
+        this.ponderThreads = Math.min(threads, workers.length);
+    }
+
+    /**
+     * Searches within the configured budget. Calls are serialised because
+     * the workers' trees are reused between searches.
+     */
+    @Override
+    public int chooseMove(GameState state) {
+        return chooseMove(state, new Search(stops.get()));
+    }
+
+    private synchronized int chooseMove(GameState state, Search search) {
+        long start = System.nanoTime();
+        int reused = finishPondering(state);
+        int[] moves = new int[Move.COUNT];
+        int count = state.legalMoves(moves);
+        if (count == 0) return -1;
+        if (count == 1) return moves[0];
+
+        long reusedNow = 0;
+        for (int i = 0; i < reused; i++) reusedNow += workers[i].rootVisits();
+        long timeNanos = timeMillis * 1_000_000L;
+        if (reusedNow > 0 && lastPlayouts > 0) {
+            long saved = (long) (reusedNow * (double) lastNanos / lastPlayouts);
+            timeNanos = Math.max(timeNanos * MIN_BUDGET_PERCENT / 100, timeNanos - saved);
+        }
+        long deadline = timeMillis > 0 ? start + timeNanos : Long.MAX_VALUE;
+        long perWorker = maxPlayouts > 0 ? Math.max(1, maxPlayouts / workers.length) : Long.MAX_VALUE;
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[i];
+            if (i >= reused) worker.clear();
+            long budget = perWorker == Long.MAX_VALUE ? perWorker : Math.max(1, perWorker - worker.rootVisits());
+            tasks[i] = pool.submit(() -> worker.search(state, deadline, budget, false, search));
+        }
+        long[] visits = new long[Move.COUNT];
+        long playouts = 0;
+        for (int i = 0; i < workers.length; i++) {
+            tasks[i].join();
+            playouts += workers[i].playouts;
+            workers[i].addRootVisits(visits);
+        }
+        lastPlayouts = playouts;
+        lastNanos = System.nanoTime() - start;
+        searches++;
+        searchNanos += lastNanos;
+
+        int best = moves[0];
+        for (int i = 1; i < count; i++) {
+            if (visits[moves[i]] > visits[best]) best = moves[i];
+        }
+        return best;
+    }
+
+    /**
+     * Ends the running search or ponder, and any caller still waiting for
+     * the engine. Never blocks.
+     */
+    @Override
+    public void stop() {
+        stops.incrementAndGet();
+    }
+
+    /**
+     * Starts pondering the position on the ponder workers and returns. Any
+     * earlier ponder is discarded. Pondering ends when chooseMove, stop or
+     * stopPondering is called, when the trees are full, or after a minute.
+     * Waits for a running chooseMove, so call it off the EDT.
+     */
+    @Override
+    public void startPondering(GameState state) {
+        startPondering(state, new Search(stops.get()));
+    }
+
+    private synchronized void startPondering(GameState state, Search search) {
+        stopPondering();
+        if (state.legalMoveCount() == 0 || search.stopped()) return;
+        ponderRoot.copyFrom(state);
+        ponder = search;
+        long deadline = System.nanoTime() + PONDER_MILLIS * 1_000_000L;
+        pondering = new ForkJoinTask<?>[ponderThreads];
+        for (int i = 0; i < ponderThreads; i++) {
+            Worker worker = workers[i];
+            worker.clear();
+            pondering[i] = pool.submit(() -> worker.search(ponderRoot, deadline, Long.MAX_VALUE, true, search));
+        }
+    }
+
+    @Override
+    public synchronized void stopPondering() {
+        if (pondering == null) return;
+        ponder.cancelled = true;
+        for (ForkJoinTask<?> task : pondering) task.join();
+        pondering = null;
+        ponder = null;
+    }
+
+    /**
+     * Ends a ponder before searching state. If state is the pondered position
+     * plus one move, re-roots the ponder workers' trees at that move and
+     * returns how many workers kept their trees; otherwise returns 0.
+     */
+    private int finishPondering(GameState state) {
+        if (pondering == null) return 0;
+        int threads = pondering.length;
+        stopPondering();
+        MoveLog log = state.getMoveLog();
+        if (log.size() != ponderRoot.getMoveLog().size() + 1) return 0;
+        int played = log.move(log.size() - 1);
+        ponderCheck.copyFrom(ponderRoot);
+        if (!ponderCheck.makeMove(played) || ponderCheck.getHash() != state.getHash()) return 0;
+
+        long[] visits = new long[Move.COUNT];
+        for (int i = 0; i < threads; i++) workers[i].addRootVisits(visits);
+        int predicted = 0;
+        for (int m = 1; m < Move.COUNT; m++) {
+            if (visits[m] > visits[predicted]) predicted = m;
+        }
+        predictions++;
+        if (predicted == played) hits++;
+        for (int i = 0; i < threads; i++) {
+            if (!workers[i].reroot(played)) return i;       // trees are rerooted in order, stop at a gap
+            reusedPlayouts += workers[i].rootVisits();
+        }
+        return threads;
+    }
+
+    /**
+     * Number of ponders that ended with the opponent's move, and how many of
+     * those moves were the predicted one.
+     */
+    public synchronized long getPonderPredictions() {
+        return predictions;
+    }
+
+    public synchronized long getPonderHits() {
+        return hits;
+    }
+
+    /**
+     * Playouts carried over from pondering into replies, in total.
+     */
+    public synchronized long getReusedPlayouts() {
+        return reusedPlayouts;
+    }
+
+    /**
+     * Mean duration of chooseMove, in milliseconds.
+     */
+    public synchronized double getAverageReplyMillis() {
+        return searches == 0 ? 0 : searchNanos / 1e6 / searches;
+    }
+
+    @Override
+    public synchronized String getPonderStats() {
+        return String.format("ponder hits %d/%d (%.0f%%), %.0f reused playouts per reply, avg reply %.1f ms",
+                hits, predictions, predictions == 0 ? 0 : hits * 100.0 / predictions,
+                searches == 0 ? 0 : reusedPlayouts / (double) searches, getAverageReplyMillis());
+    }
+
+    /**
+     * Number of playouts run by the last chooseMove.
+     */
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * Playouts per second of the last chooseMove, over all workers.
+     */
+    public double getLastPlayoutsPerSecond() {
+        return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+    }
+
+    /**
+     * Number of parallel workers.
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Cancel token of one chooseMove or ponder: it is stopped by any stop()
+     * after the stop count it was created with, or by cancelling it.
+     */
+    private final class Search {
+        private final long generation;
+        private volatile boolean cancelled;
+
+        Search(long generation) {
+            this.generation = generation;
+        }
+
+        boolean stopped() {
+            return cancelled || stops.get() != generation;
+        }
+    }
+
+    /**
+     * One search thread's tree, scratch state and random generator.
+     * Children of a node occupy a contiguous block starting at firstChild.
+     * The search starts at root, which is 0 for a fresh tree and moves down
+     * when a pondered tree is reused; nodes outside it are simply abandoned.
+     */
+    private final class Worker {
+        private final int capacity;
+        private final byte[] move;          // move leading to the node
+        private final int[] parent;
+        private final int[] firstChild;
+        private final byte[] childCount;    // 0 while unexpanded
+        private final int[] visits;
+        private final float[] score;        // wins (draw = 0.5) for the player who moved into the node
+        private final GameState state = new GameState();
+        private final int[] buffer = new int[Move.COUNT];
+        private int size;
+        private int root;
+        private long seed;
+        private long playouts;
+
+        Worker(int capacity, long seed) {
+            this.capacity = capacity;
+            this.move = new byte[capacity];
+            this.parent = new int[capacity];
+            this.firstChild = new int[capacity];
+            this.childCount = new byte[capacity];
+            this.visits = new int[capacity];
+            this.score = new float[capacity];
+            this.seed = seed;
+        }
+
+        /**
+         * Discards the tree.
+         */
+        void clear() {
+            root = 0;
+            size = 1;
+            parent[0] = -1;
+            childCount[0] = 0;
+            visits[0] = 0;
+            score[0] = 0;
+        }
+
+        /**
+         * Moves the root to its child for a move; returns false if the root
+         * has no such child (it was never expanded).
+         */
+        boolean reroot(int played) {
+            int first = firstChild[root];
+            for (int child = first; child < first + childCount[root]; child++) {
+                if (move[child] == played) {
+                    root = child;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int rootVisits() {
+            return visits[root];
+        }
+
+        /**
+         * Grows the tree from rootState, which must be the root node's
+         * position. With untilFull set (pondering) the search also ends
+         * once the tree cannot grow any more.
+         */
+        void search(GameState rootState, long deadline, long budget, boolean untilFull, Search search) {
+            state.copyFrom(rootState);
+            Player rootPlayer = state.getCurrentPlayer();
+            playouts = 0;
+
+            while (playouts < budget && !search.stopped()) {
+                if ((playouts & 63) == 0 && System.nanoTime() >= deadline) break;
+                if (untilFull && size + Move.COUNT > capacity) break;
+                int depth = 0;
+                int node = root;
+
+                // Selection: descend through expanded nodes by UCT
+                while (childCount[node] != 0) {
+                    node = selectChild(node);
+                    state.makeMove(move[node]);
+                    depth++;
+                }
+                // Expansion: add children once a node has been visited
+                if ((node == root || visits[node] > 0) && expand(node)) {
+                    node = firstChild[node] + nextInt(childCount[node]);
+                    state.makeMove(move[node]);
+                    depth++;
+                }
+                // Rollout: uniformly random moves to the end of the game
+                int rolled = 0;
+                for (int n = state.legalMoves(buffer); n != 0; n = state.legalMoves(buffer)) {
+                    state.makeMove(buffer[nextInt(n)]);
+                    rolled++;
+                }
+                Player winner = state.getGameWinner();
+                for (int i = 0; i < depth + rolled; i++) {
+                    state.undoMove();
+                }
+
+                // Backpropagation: depth 1 is the root player's move, then alternating
+                float rootResult = winner == Player.NONE ? 0.5f : (winner == rootPlayer ? 1f : 0f);
+                for (int d = depth; ; node = parent[node], d--) {
+                    visits[node]++;
+                    score[node] += (d & 1) == 1 ? rootResult : 1f - rootResult;
+                    if (node == root) break;
+                }
+                playouts++;
+            }
+        }
+
+        private int selectChild(int node) {
+            int first = firstChild[node];
+            int end = first + childCount[node];
+            double logParent = Math.log(visits[node]);
+            int best = first;
+            double bestValue = -1;
+            for (int child = first; child < end; child++) {
+                int n = visits[child];
+                if (n == 0) return child;
+                double value = score[child] / n + EXPLORATION * Math.sqrt(logParent / n);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        private boolean expand(int node) {
+            int n = state.legalMoves(buffer);
+            if (n == 0 || size + n > capacity) return false;
+            firstChild[node] = size;
+            for (int i = 0; i < n; i++) {
+                int child = size++;
+                move[child] = (byte) buffer[i];
+                parent[child] = node;
+                childCount[child] = 0;
+                visits[child] = 0;
+                score[child] = 0;
+            }
+            childCount[node] = (byte) n;
+            return true;
+        }
+
+        void addRootVisits(long[] totals) {
+            int first = firstChild[root];
+            for (int child = first; child < first + childCount[root]; child++) {
+                totals[move[child]] += visits[child];
+            }
+        }
+
+        // xorshift64*, kept inline so rollouts never touch a shared generator
+        private int nextInt(int bound) {
+            seed ^= seed >>> 12;
+            seed ^= seed << 25;
+            seed ^= seed >>> 27;
+            return (int) (((seed * 0x2545F4914F6CDD1DL) >>> 33) * bound >>> 31);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ai;
+
+import model.GameState;
+import model.Move;
+
+/**
+ * Plays a uniformly random legal move. Not thread-safe: use one per thread.
+ */
+public class RandomEngine implements Engine {
+    private final int[] moves = new int[Move.COUNT];
+    private long seed;
+
+    public RandomEngine(long seed) {
+        this.seed = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    @Override
+    public int chooseMove(GameState state) {
+        int count = state.legalMoves(moves);
+        return count == 0 ? -1 : moves[nextInt(count)];
+    }
+
+    // xorshift64*
+    int nextInt(int bound) {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return (int) (((seed * 0x2545F4914F6CDD1DL) >>> 33) * bound >>> 31);
+    }
+}
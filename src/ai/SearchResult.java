@@ -0,0 +1,79 @@
+package ai;
+
+import model.Move;
+
+/**
+ * Outcome of one (possibly partial) alpha-beta search: best move, score,
+ * depth reached, node count, elapsed time and principal variation.
+ */
+public final class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+    private final int[] pv;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos, int[] pv) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.pv = pv;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Score for the side to move; wins are reported near AlphaBetaEngine.WIN.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getNodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+    }
+
+    /**
+     * Principal variation starting with the best move (encoded moves).
+     */
+    public int[] getPrincipalVariation() {
+        return pv.clone();
+    }
+
+    /**
+     * Returns true if the score is a forced win or loss.
+     */
+    public boolean isMateScore() {
+        return Math.abs(score) > AlphaBetaEngine.WIN - AlphaBetaEngine.MAX_PLY;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("depth %d score %s nodes %d nps %.0f pv",
+                depth,
+                isMateScore() ? (score > 0 ? "win in " : "loss in ") + (AlphaBetaEngine.WIN - Math.abs(score)) : score,
+                nodes, getNodesPerSecond()));
+        for (int move : pv) {
+            sb.append(' ').append(Move.subBoardOf(move)).append(':').append(Move.cellOf(move));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package ai;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free transposition table in off-heap memory, shared by search threads.
+ * Entries are 16 bytes (key XOR data, data) in direct ByteBuffers of at most
+ * 1 GB each, so even multi-gigabyte tables add nothing for the GC to scan.
+ * Threads probe and store without synchronisation: an entry torn by two
+ * concurrent writers fails the XOR check and simply reads as a miss.
+ * Direct memory is capped by -XX:MaxDirectMemorySize (default: max heap).
+ */
+public class SharedTranspositionTable implements TranspositionTable {
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int CHUNK_SHIFT = 26;              // 2^26 entries = 1 GB per buffer
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final ByteBuffer[] chunks;
+    private final long entries;
+    private final long mask;                                // bucket index mask (even indices)
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder collisions = new LongAdder();   // bucket full of other positions
+    private final LongAdder filled = new LongAdder();       // stores into empty slots
+
+    /**
+     * Creates a table using about the given number of megabytes.
+     * The entry count is rounded down to a power of two.
+     */
+    public SharedTranspositionTable(long megabytes) {
+        entries = Math.max(2, Long.highestOneBit(megabytes * 1024 * 1024 / ENTRY_BYTES));
+        mask = (entries - 1) & ~1L;
+        int chunkCount = (int) Math.max(1, entries >>> CHUNK_SHIFT);
+        int chunkEntries = (int) Math.min(entries, 1L << CHUNK_SHIFT);
+        chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(chunkEntries * ENTRY_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    @Override
+    public long probe(long key) {
+        probes.increment();
+        long i = key & mask;
+        ByteBuffer chunk = chunks[(int) (i >>> CHUNK_SHIFT)];
+        int offset = (int) (i & CHUNK_MASK) * ENTRY_BYTES;
+        long data0 = (long) LONGS.getOpaque(chunk, offset + 8);
+        if (data0 != 0 && ((long) LONGS.getOpaque(chunk, offset) ^ data0) == key) {
+            hits.increment();
+            return data0;
+        }
+        long data1 = (long) LONGS.getOpaque(chunk, offset + 24);
+        if (data1 != 0 && ((long) LONGS.getOpaque(chunk, offset + 16) ^ data1) == key) {
+            hits.increment();
+            return data1;
+        }
+        if (data0 != 0 && data1 != 0) collisions.increment();
+        return 0;
+    }
+
+    @Override
+    public void store(long key, int move, int depth, int bound, int score) {
+        long entry = TranspositionTable.pack(move, depth, bound, score, generation);
+        long i = key & mask;
+        ByteBuffer chunk = chunks[(int) (i >>> CHUNK_SHIFT)];
+        int offset = (int) (i & CHUNK_MASK) * ENTRY_BYTES;
+        long data0 = (long) LONGS.getOpaque(chunk, offset + 8);
+        boolean sameKey = ((long) LONGS.getOpaque(chunk, offset) ^ data0) == key;
+        if (!sameKey && !TranspositionTable.prefersReplacing(data0, depth, generation)) {
+            offset += ENTRY_BYTES;
+            data0 = (long) LONGS.getOpaque(chunk, offset + 8);
+        }
+        if (data0 == 0) filled.increment();
+        LONGS.setOpaque(chunk, offset, key ^ entry);
+        LONGS.setOpaque(chunk, offset + 8, entry);
+    }
+
+    @Override
+    public void newSearch() {
+        generation++;
+    }
+
+    /**
+     * Removes all entries and resets the statistics.
+     * Must not run concurrently with probes or stores.
+     */
+    @Override
+    public void clear() {
+        byte[] zeros = new byte[1 << 16];
+        for (ByteBuffer chunk : chunks) {
+            ByteBuffer view = chunk.duplicate().clear();
+            while (view.hasRemaining()) view.put(zeros, 0, Math.min(zeros.length, view.remaining()));
+        }
+        filled.reset();
+        resetStatistics();
+    }
+
+    @Override
+    public long capacity() {
+        return entries;
+    }
+
+    /**
+     * Size of the table in bytes.
+     */
+    public long sizeInBytes() {
+        return entries * ENTRY_BYTES;
+    }
+
+    /**
+     * Fraction of probes that found their position.
+     */
+    public double getHitRate() {
+        long n = probes.sum();
+        return n == 0 ? 0 : (double) hits.sum() / n;
+    }
+
+    /**
+     * Fraction of probes that missed because both bucket slots held other positions.
+     */
+    public double getCollisionRate() {
+        long n = probes.sum();
+        return n == 0 ? 0 : (double) collisions.sum() / n;
+    }
+
+    /**
+     * Percentage of slots in use (approximate under concurrent stores).
+     */
+    public double getFillPercentage() {
+        return Math.min(100.0, filled.sum() * 100.0 / entries);
+    }
+
+    /**
+     * Resets the probe, hit and collision counters (not the fill count).
+     */
+    public void resetStatistics() {
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d MB, hit rate %.1f%%, collision rate %.1f%%, fill %.1f%%",
+                sizeInBytes() >> 20, getHitRate() * 100, getCollisionRate() * 100, getFillPercentage());
+    }
+}
@@ -0,0 +1,77 @@
+package ai;
+
+/**
+ * Hash table of search results keyed by GameState.getHash().
+ * Each entry's data is packed into a single long by pack();
+ * a data value of 0 means "no entry".
+ */
+public interface TranspositionTable {
+    int EXACT = 1;          // score is exact
+    int LOWER = 2;          // score is a lower bound (fail high)
+    int UPPER = 3;          // score is an upper bound (fail low)
+    int NO_MOVE = 0x7F;
+    int ENTRY_BYTES = 16;   // key + data
+
+    /**
+     * Returns the packed data stored for the key, or 0 if there is none.
+     */
+    long probe(long key);
+
+    /**
+     * Stores a result. Same-key entries are updated in place; otherwise the
+     * depth-preferred slot is replaced only by a deeper result or one from a
+     * newer search, and everything else goes to the always-replace slot.
+     */
+    void store(long key, int move, int depth, int bound, int score);
+
+    /**
+     * Marks the start of a new search so older entries become replaceable.
+     */
+    void newSearch();
+
+    /**
+     * Removes all entries.
+     */
+    void clear();
+
+    /**
+     * Number of entries the table can hold.
+     */
+    long capacity();
+
+    // Data layout: move (7 bits) | depth (8) | bound (2) | generation (8) | score (32, high half)
+    static long pack(int move, int depth, int bound, int score, int generation) {
+        return (move & 0x7F)
+                | (long) (depth & 0xFF) << 7
+                | (long) (bound & 0x3) << 15
+                | (long) (generation & 0xFF) << 17
+                | (long) score << 32;
+    }
+
+    /**
+     * Replacement rule for the depth-preferred slot holding data.
+     */
+    static boolean prefersReplacing(long data, int depth, int generation) {
+        return data == 0 || depth >= depthOf(data) || generationOf(data) != (generation & 0xFF);
+    }
+
+    static int moveOf(long data) {
+        return (int) (data & 0x7F);
+    }
+
+    static int depthOf(long data) {
+        return (int) (data >>> 7 & 0xFF);
+    }
+
+    static int boundOf(long data) {
+        return (int) (data >>> 15 & 0x3);
+    }
+
+    static int generationOf(long data) {
+        return (int) (data >>> 17 & 0xFF);
+    }
+
+    static int scoreOf(long data) {
+        return (int) (data >> 32);
+    }
+}
@@ -1,20 +1,71 @@
 package model;
 import java.io.Serializable;
 import java.io.*;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Holds the full game state for Ultimate Tic Tac Toe, including cell owners,
  * sub-board winners, current player, and move history. Supports move logic,
  * win/draw checks, reset, and serialization.
+ *
+ * The board is stored as bitboards: each player owns one 9-bit cell mask per
+ * sub-board (81 bits in total), and sub-board winners are kept as 9-bit masks
+ * over the virtual 3x3 board. Win and full checks are lookups in the SubBoard
+ * tables (both masks of a board give its base-3 state index), so the hot
+ * paths (makeMove, getGameWinner, isDraw, isGameOver) never allocate.
+ * A 64-bit Zobrist key of the position is kept up to date by every mutator.
+ * With a MoveEventRing attached, every move, undo, reset and load is also
+ * published to the ring for spectators and other observers.
+ *
+ * After publishSnapshots(), every change also publishes an immutable
+ * Snapshot through an atomic reference, so other threads (the paint loop,
+ * the save thread) read a consistent position without locking while the
+ * owner keeps playing; engines search private copies made from a snapshot.
+ *
+ * A GameState is not thread-safe; servers share games between threads
+ * through server.SessionManager, which serialises access per game.
  */
 public class GameState implements Serializable {
-    private final Player[][][] cells = new Player[9][3][3];       // cell owners per sub-board
-    private final Player[] winners = new Player[9];               // winner of each sub-board
+    static final int FULL = 0x1FF;                                // all nine bits of a 3x3 mask
+    static final boolean[] WINS = new boolean[1 << 9];            // masks containing three in a row
+
+    static {
+        int[] lines = {
+                0007, 0070, 0700,   // rows
+                0111, 0222, 0444,   // columns
+                0421, 0124          // diagonals
+        };
+        for (int mask = 0; mask <= FULL; mask++) {
+            for (int line : lines) {
+                if ((mask & line) == line) {
+                    WINS[mask] = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private final int[] xCells = new int[9];                      // X cell masks per sub-board
+    private final int[] oCells = new int[9];                      // O cell masks per sub-board
+    private int xWon;                                             // sub-boards won by X
+    private int oWon;                                             // sub-boards won by O
+    private int metaIndex;                                        // SubBoard index of the big board
+    private int closed;                                           // sub-boards won or full
     private Player currentPlayer = Player.X;                      // whose turn it is
     private int nextActiveSubBoard = -1;                          // index of forced next sub-board
-    private final List<String> moveHistory = new ArrayList<>();   // textual history of moves
+    private final MoveLog moveLog = new MoveLog();                // history of moves
+    private final int[] undoTokens = new int[81];                 // tokens of moves that can be undone
+    private int undoCount;                                        // number of entries in undoTokens
+    private long hash;                                            // Zobrist key of the position
+    private transient MoveEventRing events;                       // observers' event stream, if any
+    private transient volatile AtomicReference<Snapshot> snapshots;   // latest snapshot, if publishing
+
+    // Undo token layout: encoded move, previous forced sub-board (+2) and what the move closed
+    private static final int TOKEN_MOVE = 0x7F;
+    private static final int TOKEN_NEXT_SHIFT = 7;
+    private static final int TOKEN_WON = 1 << 11;
+    private static final int TOKEN_CLOSED = 1 << 12;
     /**
      * Initializes a new empty game state.
      */
@@ -25,139 +76,368 @@ public class GameState implements Serializable {
      * Checks if the game is a draw (all boards full or decided, no winner).
      */
     public boolean isDraw() {
-        if (getGameWinner() != Player.NONE) return false;
-        for (int sb = 0; sb < 9; sb++) {
-            if (winners[sb] == Player.NONE && !isSubBoardFull(sb)) {
-                return false; // moves still possible
-            }
-        }
-        return true; // all sub-boards decided or full
+        return closed == FULL && !isGameOver();
     }
     /**
      * Resets the game state to a new empty board.
      */
     public void reset() {
         for (int sb = 0; sb < 9; sb++) {
-            winners[sb] = Player.NONE;
-            for (int r = 0; r < 3; r++) {
-                for (int c = 0; c < 3; c++) {
-                    cells[sb][r][c] = Player.NONE;
-                }
-            }
+            xCells[sb] = 0;
+            oCells[sb] = 0;
         }
+        xWon = 0;
+        oWon = 0;
+        metaIndex = 0;
+        closed = 0;
         currentPlayer = Player.X;
         nextActiveSubBoard = -1;
-        moveHistory.clear();
+        moveLog.clear();
+        undoCount = 0;
+        hash = Zobrist.NEXT[nextActiveSubBoard + 2];
+        if (events != null) events.publish(MoveEventRing.RESET, Player.NONE, -1, 0);
+        publishSnapshot();
     }
     // Simple setters for loading state
     public void setCurrentPlayer(Player player) {
+        hash ^= Zobrist.side(currentPlayer) ^ Zobrist.side(player);
         this.currentPlayer = player;
+        publishSnapshot();
     }
     public void setNextActiveSubBoard(int subBoard) {
+        hash ^= Zobrist.NEXT[nextActiveSubBoard + 2] ^ Zobrist.NEXT[subBoard + 2];
         this.nextActiveSubBoard = subBoard;
+        publishSnapshot();
     }
     public void setSubBoardWinner(int subBoard, Player winner) {
-        winners[subBoard] = winner;
+        hash ^= Zobrist.won(getSubBoardWinner(subBoard), subBoard) ^ Zobrist.won(winner, subBoard);
+        int bit = 1 << subBoard;
+        xWon = winner == Player.X ? xWon | bit : xWon & ~bit;
+        oWon = winner == Player.O ? oWon | bit : oWon & ~bit;
+        metaIndex = SubBoard.index(xWon, oWon);
+        updateClosed(subBoard);
+        publishSnapshot();
     }
     public void setCell(int subBoard, int row, int col, Player player) {
-        cells[subBoard][row][col] = player;
+        int move = subBoard * 9 + row * 3 + col;
+        hash ^= Zobrist.cell(getCell(subBoard, row, col), move) ^ Zobrist.cell(player, move);
+        int bit = 1 << (row * 3 + col);
+        xCells[subBoard] = player == Player.X ? xCells[subBoard] | bit : xCells[subBoard] & ~bit;
+        oCells[subBoard] = player == Player.O ? oCells[subBoard] | bit : oCells[subBoard] & ~bit;
+        updateClosed(subBoard);
+        publishSnapshot();
     }
     /**
      * Attempts to place the current player's mark in the specified cell.
      * Returns true if the move was valid and updates game state.
      */
     public boolean makeMove(int subBoard, int row, int col) {
-        if (isGameOver() || winners[subBoard] != Player.NONE ||
-                cells[subBoard][row][col] != Player.NONE ||
+        int cell = row * 3 + col;
+        int bit = 1 << cell;
+        int sbBit = 1 << subBoard;
+        if (isGameOver() || ((xWon | oWon) & sbBit) != 0 ||
+                ((xCells[subBoard] | oCells[subBoard]) & bit) != 0 ||
                 (nextActiveSubBoard != -1 && subBoard != nextActiveSubBoard)) {
             return false;
         }
-        cells[subBoard][row][col] = currentPlayer;
-        if (checkWin(cells[subBoard], currentPlayer)) {
-            winners[subBoard] = currentPlayer;
+        int move = subBoard * 9 + cell;
+        int token = move | (nextActiveSubBoard + 2) << TOKEN_NEXT_SHIFT;
+        Player mover = currentPlayer;
+        if (mover == Player.X) {
+            xCells[subBoard] |= bit;
+        } else {
+            oCells[subBoard] |= bit;
         }
-        Player globalWinner = getGameWinner();
-        if (globalWinner != Player.NONE) {
+        hash ^= Zobrist.CELL[mover.ordinal()][move] ^ Zobrist.NEXT[nextActiveSubBoard + 2];
+        int index = getSubBoardIndex(subBoard);
+        if (SubBoard.winner(index) == mover) {
+            if (mover == Player.X) {
+                xWon |= sbBit;
+                metaIndex += SubBoard.index(sbBit, 0);
+            } else {
+                oWon |= sbBit;
+                metaIndex += SubBoard.index(0, sbBit);
+            }
+            token |= TOKEN_WON;
+            hash ^= Zobrist.WON[mover.ordinal()][subBoard];
+        }
+        if (SubBoard.isClosed(index)) {
+            closed |= sbBit;
+            token |= TOKEN_CLOSED;
+        }
+        undoTokens[undoCount++] = token;
+        if (isGameOver()) {
             nextActiveSubBoard = -2; // game over
         } else {
-            int next = row * 3 + col;
-            nextActiveSubBoard = (!isSubBoardFull(next) && winners[next] == Player.NONE) ? next : -1;
-            currentPlayer = currentPlayer.opposite();
+            nextActiveSubBoard = (closed & (1 << cell)) == 0 ? cell : -1;
+            currentPlayer = mover.opposite();
+            hash ^= Zobrist.O_TO_MOVE;
         }
-        moveHistory.add(currentPlayer.opposite() + " → board " + subBoard + ", box " + (row*3+col));
+        hash ^= Zobrist.NEXT[nextActiveSubBoard + 2];
+        moveLog.append(mover, move);
+        if (events != null) events.publish(MoveEventRing.MOVE, mover, move, moveLog.size());
+        publishSnapshot();
         return true;
     }
     /**
-     * Checks if a sub-board is completely filled.
+     * Takes back the most recent move made through makeMove.
+     * Returns false if there is nothing to undo (e.g. right after loading).
      */
-    public boolean isSubBoardFull(int sb) {
-        for (int r = 0; r < 3; r++) {
-            for (int c = 0; c < 3; c++) {
-                if (cells[sb][r][c] == Player.NONE) return false;
+    public boolean undoMove() {
+        if (undoCount == 0) return false;
+        unmakeMove(undoTokens[undoCount - 1]);
+        return true;
+    }
+    /**
+     * Returns the undo token of the most recent move, or -1 if there is none.
+     * Pass it to unmakeMove to take the move back.
+     */
+    public int lastMoveToken() {
+        return undoCount == 0 ? -1 : undoTokens[undoCount - 1];
+    }
+    /**
+     * Returns the most recent undoable move (encoded as in Move.encode), or -1.
+     */
+    public int getLastMove() {
+        return undoCount == 0 ? -1 : undoTokens[undoCount - 1] & TOKEN_MOVE;
+    }
+    /**
+     * Reverts the move described by token in constant time. Tokens must be
+     * unmade in reverse order of the moves, as in a depth-first tree search.
+     */
+    public void unmakeMove(int token) {
+        int move = token & TOKEN_MOVE;
+        int sb = Move.subBoardOf(move);
+        int bit = 1 << Move.cellOf(move);
+        int sbBit = 1 << sb;
+        Player mover = (xCells[sb] & bit) != 0 ? Player.X : Player.O;
+        if (mover == Player.X) {
+            xCells[sb] &= ~bit;
+            if ((token & TOKEN_WON) != 0) {
+                xWon &= ~sbBit;
+                metaIndex -= SubBoard.index(sbBit, 0);
             }
+        } else {
+            oCells[sb] &= ~bit;
+            if ((token & TOKEN_WON) != 0) {
+                oWon &= ~sbBit;
+                metaIndex -= SubBoard.index(0, sbBit);
+            }
+        }
+        if ((token & TOKEN_CLOSED) != 0) closed &= ~sbBit;
+        int previousNext = (token >>> TOKEN_NEXT_SHIFT & 0xF) - 2;
+        hash ^= Zobrist.CELL[mover.ordinal()][move]
+                ^ Zobrist.NEXT[nextActiveSubBoard + 2] ^ Zobrist.NEXT[previousNext + 2]
+                ^ Zobrist.side(currentPlayer) ^ Zobrist.side(mover);
+        if ((token & TOKEN_WON) != 0) hash ^= Zobrist.WON[mover.ordinal()][sb];
+        currentPlayer = mover;
+        nextActiveSubBoard = previousNext;
+        undoCount--;
+        moveLog.removeLast();
+        if (events != null) events.publish(MoveEventRing.UNDO, mover, move, moveLog.size());
+        publishSnapshot();
+    }
+    /**
+     * Plays an encoded move (see Move.encode) for the current player.
+     */
+    public boolean makeMove(int move) {
+        int cell = Move.cellOf(move);
+        return makeMove(Move.subBoardOf(move), cell / 3, cell % 3);
+    }
+    /**
+     * Resets the board and plays the first plies moves of a log, which must
+     * not be this state's own log. Afterwards every replayed move can be
+     * undone. Returns false, leaving the moves before the offending one in
+     * place, if a move is illegal or was made by the wrong player.
+     */
+    public boolean replay(MoveLog log, int plies) {
+        if (log == moveLog) throw new IllegalArgumentException("cannot replay a state's own log");
+        reset();
+        for (int i = 0; i < plies; i++) {
+            int move = log.move(i);
+            if (log.player(i) != currentPlayer || move >= Move.COUNT || !makeMove(move)) return false;
         }
         return true;
     }
+    /**
+     * Returns a 9-bit mask of the sub-boards the current player may play in.
+     * Honours the forced sub-board and is empty once the game is won.
+     */
+    public int activeSubBoardMask() {
+        if (isGameOver()) return 0;
+        int open = ~closed & FULL;
+        return nextActiveSubBoard >= 0 ? open & (1 << nextActiveSubBoard) : open;
+    }
+    /**
+     * Returns a 9-bit mask of the cells that are legal moves in a sub-board.
+     */
+    public int legalCellMask(int sb) {
+        if ((activeSubBoardMask() & (1 << sb)) == 0) return 0;
+        return ~(xCells[sb] | oCells[sb]) & FULL;
+    }
+    /**
+     * Writes every legal move, encoded as in Move.encode, into out
+     * (which must hold at least Move.COUNT entries) and returns how many.
+     */
+    public int legalMoves(int[] out) {
+        int count = 0;
+        for (int active = activeSubBoardMask(); active != 0; active &= active - 1) {
+            int sb = Integer.numberOfTrailingZeros(active);
+            int base = sb * 9;
+            for (int free = ~(xCells[sb] | oCells[sb]) & FULL; free != 0; free &= free - 1) {
+                out[count++] = base + Integer.numberOfTrailingZeros(free);
+            }
+        }
+        return count;
+    }
+    /**
+     * Counts the legal moves for the current player.
+     */
+    public int legalMoveCount() {
+        int count = 0;
+        for (int active = activeSubBoardMask(); active != 0; active &= active - 1) {
+            int sb = Integer.numberOfTrailingZeros(active);
+            count += 9 - Integer.bitCount(xCells[sb] | oCells[sb]);
+        }
+        return count;
+    }
+    /**
+     * Formats a move the way it appears in the move history.
+     */
+    public static String describeMove(Player player, int move) {
+        return player + " → board " + Move.subBoardOf(move) + ", box " + Move.cellOf(move);
+    }
+    /**
+     * Checks if a sub-board is completely filled.
+     */
+    public boolean isSubBoardFull(int sb) {
+        return (xCells[sb] | oCells[sb]) == FULL;
+    }
     /**
      * Checks if the overall game has a winner.
      */
     public boolean isGameOver() {
-        return checkWin(getVirtualBoard(), Player.X) || checkWin(getVirtualBoard(), Player.O);
+        return SubBoard.isWon(metaIndex);
     }
     // Simple getters
-    public Player getCell(int sb, int r, int c) { return cells[sb][r][c]; }
-    public Player getSubBoardWinner(int sb) { return winners[sb]; }
+    public Player getCell(int sb, int r, int c) {
+        int bit = 1 << (r * 3 + c);
+        if ((xCells[sb] & bit) != 0) return Player.X;
+        return (oCells[sb] & bit) != 0 ? Player.O : Player.NONE;
+    }
+    public Player getSubBoardWinner(int sb) {
+        int bit = 1 << sb;
+        if ((xWon & bit) != 0) return Player.X;
+        return (oWon & bit) != 0 ? Player.O : Player.NONE;
+    }
     public Player getCurrentPlayer() { return currentPlayer; }
+    /**
+     * Returns the 9-bit mask of cells a player owns in a sub-board (bit = row*3+col);
+     * NONE gives the empty cells.
+     */
+    public int getCellMask(Player p, int sb) {
+        return p == Player.X ? xCells[sb] : (p == Player.O ? oCells[sb] : ~(xCells[sb] | oCells[sb]) & FULL);
+    }
+    /**
+     * Returns the 9-bit mask of sub-boards a player has won.
+     */
+    public int getWonMask(Player p) {
+        return p == Player.X ? xWon : (p == Player.O ? oWon : 0);
+    }
+    /**
+     * Returns the 9-bit mask of sub-boards that are won or full.
+     */
+    public int getClosedMask() { return closed; }
+    /**
+     * Returns the SubBoard state index of a sub-board, for the SubBoard tables.
+     */
+    public int getSubBoardIndex(int sb) {
+        return SubBoard.index(xCells[sb], oCells[sb]);
+    }
+    /**
+     * Returns the SubBoard state index of the big board (sub-board winners).
+     */
+    public int getMetaIndex() {
+        return metaIndex;
+    }
     public int getNextActiveSubBoard() { return nextActiveSubBoard; }
-    public List<String> getMoveHistory() { return moveHistory; }
     /**
-     * Builds a 3x3 virtual board of sub-board winners for global win check.
+     * Returns the move history formatted for display. The list is a read-only
+     * view of the move log; entries are formatted when they are read.
      */
-    private Player[][] getVirtualBoard() {
-        Player[][] virt = new Player[3][3];
-        for (int sb = 0; sb < 9; sb++) {
-            virt[sb/3][sb%3] = winners[sb];
-        }
-        return virt;
+    public List<String> getMoveHistory() { return moveLog.asStrings(); }
+    /**
+     * Returns the log of moves that led to this position.
+     */
+    public MoveLog getMoveLog() { return moveLog; }
+    /**
+     * Returns the 64-bit Zobrist key of the position: cell owners, sub-board
+     * winners, side to move and forced sub-board. Equal positions have equal keys.
+     */
+    public long getHash() { return hash; }
+    /**
+     * Attaches a ring that every later change is published to (null detaches).
+     * Only the thread currently changing the state publishes, so engines
+     * should search on copies, which have no ring.
+     */
+    public void setEventRing(MoveEventRing events) { this.events = events; }
+    public MoveEventRing getEventRing() { return events; }
+    /**
+     * Starts publishing a Snapshot after every change. Only states shared
+     * with other threads need this; engine copies never publish, so their
+     * make/unmake stays allocation-free.
+     */
+    public void publishSnapshots() {
+        if (snapshots == null) snapshots = new AtomicReference<>(takeSnapshot());
     }
     /**
-     * Checks if the given 3x3 board has three in a row for player p.
+     * Returns an immutable snapshot of the position: the latest published
+     * one, or a fresh one if this state does not publish. Publishing states
+     * may be read this way from any thread.
      */
-    private boolean checkWin(Player[][] board, Player p) {
-        for (int i = 0; i < 3; i++) {
-            if (board[i][0]==p && board[i][1]==p && board[i][2]==p) return true;
-            if (board[0][i]==p && board[1][i]==p && board[2][i]==p) return true;
-        }
-        return (board[0][0]==p && board[1][1]==p && board[2][2]==p) ||
-                (board[0][2]==p && board[1][1]==p && board[2][0]==p);
+    public Snapshot snapshot() {
+        AtomicReference<Snapshot> published = snapshots;
+        return published != null ? published.get() : takeSnapshot();
+    }
+    private void publishSnapshot() {
+        if (snapshots != null) snapshots.set(takeSnapshot());
+    }
+    private Snapshot takeSnapshot() {
+        return new Snapshot(xCells, oCells, xWon, oWon, closed, currentPlayer, nextActiveSubBoard, hash,
+                moveLog.toPackedArray(), undoCount == moveLog.size());
+    }
+    /**
+     * Recomputes whether a sub-board is decided after it was edited directly.
+     */
+    private void updateClosed(int sb) {
+        int bit = 1 << sb;
+        boolean isClosed = ((xWon | oWon) & bit) != 0 || isSubBoardFull(sb);
+        closed = isClosed ? closed | bit : closed & ~bit;
     }
     /**
      * Copies state from another GameState (used for loading).
      */
     public void copyFrom(GameState other) {
-        for (int sb = 0; sb < 9; sb++) {
-            winners[sb] = other.winners[sb];
-            for (int r = 0; r < 3; r++) {
-                for (int c = 0; c < 3; c++) {
-                    cells[sb][r][c] = other.cells[sb][r][c];
-                }
-            }
-        }
+        System.arraycopy(other.xCells, 0, xCells, 0, 9);
+        System.arraycopy(other.oCells, 0, oCells, 0, 9);
+        xWon = other.xWon;
+        oWon = other.oWon;
+        metaIndex = other.metaIndex;
+        closed = other.closed;
         currentPlayer = other.currentPlayer;
         nextActiveSubBoard = other.nextActiveSubBoard;
+        System.arraycopy(other.undoTokens, 0, undoTokens, 0, other.undoCount);
+        undoCount = other.undoCount;
+        hash = other.hash;
+        moveLog.copyFrom(other.moveLog);
+        if (events != null) events.publish(MoveEventRing.LOAD, Player.NONE, -1, moveLog.size());
+        publishSnapshot();
     }
     /**
-     * Determines the overall game winner by checking the virtual board.
+     * Determines the overall game winner from the sub-board winner masks.
      */
     public Player getGameWinner() {
-        Player[][] virt = getVirtualBoard();
-        for (int i = 0; i < 3; i++) {
-            if (virt[i][0]!=Player.NONE && virt[i][0]==virt[i][1] && virt[i][0]==virt[i][2]) return virt[i][0];
-            if (virt[0][i]!=Player.NONE && virt[0][i]==virt[1][i] && virt[0][i]==virt[2][i]) return virt[0][i];
-        }
-        if (virt[0][0]!=Player.NONE && virt[0][0]==virt[1][1] && virt[0][0]==virt[2][2]) return virt[0][0];
-        if (virt[0][2]!=Player.NONE && virt[0][2]==virt[1][1] && virt[0][2]==virt[2][0]) return virt[0][2];
-        return Player.NONE;
+        return SubBoard.winner(metaIndex);
     }
     /**
      * Serializes the entire GameState to a file.
@@ -1,16 +1,47 @@
 package model;
 
+/**
+ * A single move with its player and the time it was made.
+ * Engines, move generators and MoveLog pass moves around as plain ints
+ * instead; the static helpers below convert between the two forms.
+ */
 public class Move {
+    public static final int COUNT = 81;           // number of distinct encoded moves
     private final int subBoardIdx;
     private final int cellIdx;
     private final Player player;
     private final long timestamp;
 
     public Move(int subBoardIdx, int cellIdx, Player player) {
+        this(subBoardIdx, cellIdx, player, System.currentTimeMillis());
+    }
+
+    public Move(int subBoardIdx, int cellIdx, Player player, long timestamp) {
         this.subBoardIdx = subBoardIdx;
         this.cellIdx = cellIdx;
         this.player = player;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Encodes a sub-board and cell index (both 0-8) into a move in 0-80.
+     */
+    public static int encode(int subBoardIdx, int cellIdx) {
+        return subBoardIdx * 9 + cellIdx;
+    }
+
+    /**
+     * Returns the sub-board index of an encoded move.
+     */
+    public static int subBoardOf(int move) {
+        return move / 9;
+    }
+
+    /**
+     * Returns the cell index within its sub-board of an encoded move.
+     */
+    public static int cellOf(int move) {
+        return move % 9;
     }
 
     public int getSubBoardIdx() {
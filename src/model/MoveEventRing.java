@@ -0,0 +1,304 @@
+package model;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single-producer, multi-consumer ring buffer of move events. A GameState
+ * with a ring attached publishes every move, undo, reset and load into it;
+ * any number of consumers (spectators, loggers, persisters) read the
+ * stream at their own pace on their own threads, so the thread playing the
+ * moves never runs consumer code.
+ *
+ * An event is one long (see encode), slots are preallocated and consumers
+ * are kept in a copy-on-write array, so publishing allocates nothing. Only
+ * one thread may publish at a time, e.g. the holder of the game's lock.
+ *
+ * Each consumer picks a policy when it subscribes. BLOCK consumers apply
+ * backpressure: the publisher waits rather than overwrite an event they
+ * have not read. DROP consumers never slow the publisher; one that falls a
+ * whole ring behind skips the overwritten events and counts them in
+ * getDropped(), so it knows to resync from the game itself.
+ */
+public class MoveEventRing {
+    // Event kinds
+    public static final int MOVE = 0;     // a move was played; ply = moves played so far
+    public static final int UNDO = 1;     // the move was taken back
+    public static final int RESET = 2;    // the board was cleared
+    public static final int LOAD = 3;     // the position was replaced wholesale (copyFrom)
+
+    // Event layout: packed move (MoveLog.packed, bit 7 = O), kind, ply
+    private static final int KIND_SHIFT = 8;
+    private static final int PLY_SHIFT = 16;
+    private static final int O_BIT = 0x80;
+
+    private static final int SPINS = 100;                // publisher's busy polls before parking
+
+    /** What happens when a consumer falls a full ring behind. */
+    public enum Policy { BLOCK, DROP }
+
+    /** Receives events; endOfBatch is set on the last event of a poll. */
+    @FunctionalInterface
+    public interface Handler {
+        void onEvent(long sequence, long event, boolean endOfBatch);
+    }
+
+    private final long[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);     // last published sequence
+    private final AtomicLong claimed = new AtomicLong(-1);    // last sequence being written
+    private long next;                                        // publisher only
+    private long gate = -1;                                   // publisher's cached min of BLOCK consumers
+    private volatile Consumer[] consumers = new Consumer[0];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();   // consumers parked in await
+
+    /**
+     * Creates a ring holding the last capacity events (a power of two).
+     */
+    public MoveEventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        slots = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Returns the sequence of the last published event, -1 before the first.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Packs an event. ply is the number of moves in the game after the event.
+     */
+    public static long encode(int kind, Player player, int move, int ply) {
+        int packed = move < 0 ? 0 : (player == Player.O ? move | O_BIT : move);
+        return packed | (long) kind << KIND_SHIFT | (long) ply << PLY_SHIFT;
+    }
+
+    public static int kind(long event) {
+        return (int) (event >>> KIND_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Returns the encoded move (see Move.encode) of a MOVE or UNDO event.
+     */
+    public static int move(long event) {
+        return (int) event & ~O_BIT & 0xFF;
+    }
+
+    /**
+     * Returns the move as MoveLog stores it: the encoded move with bit 7 set for O.
+     */
+    public static int packed(long event) {
+        return (int) event & 0xFF;
+    }
+
+    public static Player player(long event) {
+        return (event & O_BIT) != 0 ? Player.O : Player.X;
+    }
+
+    public static int ply(long event) {
+        return (int) (event >>> PLY_SHIFT);
+    }
+
+    /**
+     * Publishes an event, first waiting for BLOCK consumers to free its slot.
+     */
+    public void publish(int kind, Player player, int move, int ply) {
+        long seq = next++;
+        if (seq - slots.length > gate) waitForBlockingConsumers(seq);
+        claimed.set(seq);
+        VarHandle.storeStoreFence();        // DROP readers must see the claim before the overwrite
+        slots[(int) seq & mask] = encode(kind, player, move, ply);
+        cursor.set(seq);
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void waitForBlockingConsumers(long seq) {
+        for (int spins = 0; ; spins++) {
+            long min = Long.MAX_VALUE;
+            for (Consumer c : consumers) {
+                if (c.policy == Policy.BLOCK) min = Math.min(min, c.sequence.get());
+            }
+            gate = min == Long.MAX_VALUE ? seq : min;
+            if (seq - slots.length <= gate) return;
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(50_000);
+            }
+        }
+    }
+
+    /**
+     * Adds a consumer that will see the events published from now on.
+     */
+    public Consumer subscribe(Policy policy) {
+        Consumer c = new Consumer(policy, cursor.get());
+        synchronized (this) {
+            Consumer[] grown = Arrays.copyOf(consumers, consumers.length + 1);
+            grown[grown.length - 1] = c;
+            consumers = grown;
+        }
+        return c;
+    }
+
+    private synchronized void unsubscribe(Consumer c) {
+        Consumer[] current = consumers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == c) {
+                Consumer[] shrunk = new Consumer[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, shrunk.length - i);
+                consumers = shrunk;
+                return;
+            }
+        }
+    }
+
+    public int getConsumerCount() {
+        return consumers.length;
+    }
+
+    /**
+     * One reader of the ring. Each consumer must be polled by one thread at a time.
+     */
+    public final class Consumer implements AutoCloseable {
+        private final Policy policy;
+        private final AtomicLong sequence;          // last event read, gates the publisher
+        private long dropped;
+        private volatile boolean closed;
+
+        private Consumer(Policy policy, long start) {
+            this.policy = policy;
+            this.sequence = new AtomicLong(start);
+        }
+
+        /**
+         * Hands up to max waiting events to the handler and returns how many.
+         * A DROP consumer that was overrun skips to the oldest event still in
+         * the ring and returns without handling anything after the gap, so
+         * the caller can compare getDropped() and resync first.
+         */
+        public int poll(Handler handler, int max) {
+            long last = sequence.get();
+            long available = cursor.get();
+            if (available <= last || closed) return 0;
+            if (policy == Policy.DROP && available - last > slots.length) {
+                long oldest = available - slots.length;     // one before the oldest kept event
+                dropped += oldest - last;
+                sequence.set(oldest);
+                return 0;
+            }
+            long end = Math.min(available, last + max);
+            int count = 0;
+            for (long seq = last + 1; seq <= end; seq++) {
+                long event = slots[(int) seq & mask];
+                if (policy == Policy.DROP) {
+                    VarHandle.loadLoadFence();
+                    if (claimed.get() - seq >= slots.length) {   // overwritten while we read it
+                        dropped += available - seq + 1;
+                        sequence.set(available);
+                        return count;
+                    }
+                }
+                handler.onEvent(seq, event, seq == end);
+                count++;
+            }
+            sequence.set(end);
+            return count;
+        }
+
+        /**
+         * Waits until there are events to poll. Returns false on timeout or
+         * once the consumer is closed.
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            // No busy spinning: consumers are often virtual threads, which would pin their carrier
+            if (closed) return false;
+            if (cursor.get() > sequence.get()) return true;
+            long nanos = unit.toNanos(timeout);
+            lock.lock();
+            waiters.incrementAndGet();
+            try {
+                while (!closed && cursor.get() <= sequence.get()) {
+                    if (nanos <= 0) return false;
+                    nanos = published.awaitNanos(nanos);
+                }
+                return !closed;
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Moves the read position so the next poll starts after sequence,
+         * e.g. after resyncing from the game while its publisher was idle.
+         */
+        public void seek(long sequence) {
+            this.sequence.set(sequence);
+        }
+
+        /**
+         * Number of events published but not read yet.
+         */
+        public long lag() {
+            return cursor.get() - sequence.get();
+        }
+
+        /**
+         * Number of events a DROP consumer missed because it fell behind.
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Unsubscribes; a BLOCK consumer stops holding back the publisher
+         * and a thread waiting in await returns false.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            unsubscribe(this);
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package model;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only history of the moves of a game, kept as one byte per move
+ * (the encoded move, bit 7 set for O) in a growable array. Recording a move
+ * allocates nothing; the "X → board 3, box 4" text is only built when a view
+ * asks for it. Timestamps are optional and, when enabled, are recorded in
+ * a parallel long array the same way Move stamps its creation time.
+ */
+public class MoveLog implements Serializable {
+    private static final int O_BIT = 0x80;
+
+    private byte[] moves = new byte[Move.COUNT];
+    private long[] timestamps;                      // null unless timestamps are recorded
+    private int size;
+
+    /**
+     * Starts or stops recording the time of each appended move.
+     * Moves appended while disabled have timestamp 0.
+     */
+    public void setRecordTimestamps(boolean record) {
+        if (!record) {
+            timestamps = null;
+        } else if (timestamps == null) {
+            timestamps = new long[moves.length];
+        }
+    }
+
+    public boolean isRecordingTimestamps() {
+        return timestamps != null;
+    }
+
+    /**
+     * Appends an encoded move made by the given player.
+     */
+    public void append(Player player, int move) {
+        if (size == moves.length) grow();
+        moves[size] = (byte) (player == Player.O ? move | O_BIT : move);
+        if (timestamps != null) timestamps[size] = System.currentTimeMillis();
+        size++;
+    }
+
+    /**
+     * Removes the most recent move; does nothing if the log is empty.
+     */
+    public void removeLast() {
+        if (size > 0) size--;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns move i (0 = first) encoded as in Move.encode.
+     */
+    public int move(int i) {
+        return moves[checkIndex(i)] & ~O_BIT & 0xFF;
+    }
+
+    /**
+     * Returns the player who made move i.
+     */
+    public Player player(int i) {
+        return (moves[checkIndex(i)] & O_BIT) != 0 ? Player.O : Player.X;
+    }
+
+    /**
+     * Returns move i as stored: the encoded move with bit 7 set for O.
+     */
+    public int packed(int i) {
+        return moves[checkIndex(i)] & 0xFF;
+    }
+
+    /**
+     * Returns the time move i was made in epoch milliseconds, or 0 if unknown.
+     */
+    public long timestamp(int i) {
+        checkIndex(i);
+        return timestamps == null ? 0 : timestamps[i];
+    }
+
+    /**
+     * Builds a Move object for move i.
+     */
+    public Move get(int i) {
+        int move = move(i);
+        return new Move(Move.subBoardOf(move), Move.cellOf(move), player(i), timestamp(i));
+    }
+
+    /**
+     * Formats move i the way it appears in the move history panel.
+     */
+    public String describe(int i) {
+        return GameState.describeMove(player(i), move(i));
+    }
+
+    /**
+     * Read-only list view of the formatted moves; entries are built on access.
+     */
+    public List<String> asStrings() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return describe(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the packed moves, for snapshots.
+     */
+    byte[] toPackedArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    /**
+     * Replaces the contents with those of another log, reusing the arrays.
+     */
+    public void copyFrom(MoveLog other) {
+        if (moves.length < other.size) moves = new byte[other.moves.length];
+        System.arraycopy(other.moves, 0, moves, 0, other.size);
+        if (timestamps != null) {
+            if (timestamps.length < moves.length) timestamps = new long[moves.length];
+            if (other.timestamps != null) {
+                System.arraycopy(other.timestamps, 0, timestamps, 0, other.size);
+            } else {
+                Arrays.fill(timestamps, 0, other.size, 0);
+            }
+        }
+        size = other.size;
+    }
+
+    private void grow() {
+        moves = Arrays.copyOf(moves, moves.length * 2);
+        if (timestamps != null) timestamps = Arrays.copyOf(timestamps, moves.length);
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("move " + i + " of " + size);
+        return i;
+    }
+}
@@ -0,0 +1,344 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Ultimate Tic Tac Toe generalised to any nesting depth k: the board is a
+ * 3x3 grid of depth k-1 boards, down to single cells, so it has 9^k cells
+ * (depth 2 is the classic game played by GameState, depth 3 has 729 cells).
+ *
+ * Nodes are numbered per level: level 0 holds the 9^k cells, level L the
+ * 9^(k-L) boards made of nine level L-1 nodes (children of node n are
+ * 9n .. 9n+8), and level k is the whole board. For every level the state
+ * is three packed bitsets: won by X, won by O, closed (won or full). A move
+ * sets one cell bit and walks up its ancestor chain only as long as nodes
+ * get won or closed, so it costs O(k) whatever the board size; undo walks
+ * the same chain back.
+ *
+ * Routing generalises the classic rule: the cell's digits in base 9 give
+ * its path from the top board, and dropping the top digit gives the level 1
+ * board the next player is sent to. If that board, or a board containing
+ * it, is closed, the player may play anywhere in the nearest open ancestor.
+ */
+public class NestedBoard {
+    public static final int MAX_DEPTH = 6;                      // 531441 cells
+
+    private final int depth;
+    private final int[] nodes;                                  // node count per level
+    private final long[][] xWon;                                // per level: nodes won (cells owned) by X
+    private final long[][] oWon;                                // per level: nodes won (cells owned) by O
+    private final long[][] closed;                              // per level: nodes won or full
+    private Player currentPlayer = Player.X;
+    private int constraintLevel;                                // the next move must be inside this node
+    private int constraintIndex;
+    private long[] undo = new long[64];                         // see token()
+    private int moves;
+
+    /**
+     * Creates an empty board of the given depth (1 = plain tic tac toe).
+     */
+    public NestedBoard(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be between 1 and " + MAX_DEPTH);
+        }
+        this.depth = depth;
+        nodes = new int[depth + 1];
+        xWon = new long[depth + 1][];
+        oWon = new long[depth + 1][];
+        closed = new long[depth + 1][];
+        for (int level = 0, n = pow9(depth); level <= depth; level++, n /= 9) {
+            nodes[level] = n;
+            xWon[level] = new long[(n + 63) >>> 6];
+            oWon[level] = new long[(n + 63) >>> 6];
+            closed[level] = new long[(n + 63) >>> 6];
+        }
+        reset();
+    }
+
+    /**
+     * Clears the board for a new game with X to move anywhere.
+     */
+    public void reset() {
+        for (int level = 0; level <= depth; level++) {
+            Arrays.fill(xWon[level], 0);
+            Arrays.fill(oWon[level], 0);
+            Arrays.fill(closed[level], 0);
+        }
+        currentPlayer = Player.X;
+        constraintLevel = depth;
+        constraintIndex = 0;
+        moves = 0;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Number of cells, 9^depth.
+     */
+    public int getCellCount() {
+        return nodes[0];
+    }
+
+    /**
+     * Number of nodes at a level (9^(depth-level)).
+     */
+    public int getNodeCount(int level) {
+        return nodes[level];
+    }
+
+    public Player getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getMoveCount() {
+        return moves;
+    }
+
+    /**
+     * Returns the owner of a node: the player in a cell (level 0) or the winner of a board.
+     */
+    public Player getOwner(int level, int index) {
+        if (get(xWon[level], index)) return Player.X;
+        return get(oWon[level], index) ? Player.O : Player.NONE;
+    }
+
+    /**
+     * Returns true if a node is won or full.
+     */
+    public boolean isClosed(int level, int index) {
+        return get(closed[level], index);
+    }
+
+    /**
+     * Returns a 9-bit mask of the children of a board (level >= 1) owned by a player.
+     */
+    public int getChildMask(Player p, int level, int index) {
+        if (p == Player.X) return nine(xWon[level - 1], index * 9);
+        if (p == Player.O) return nine(oWon[level - 1], index * 9);
+        return ~(nine(xWon[level - 1], index * 9) | nine(oWon[level - 1], index * 9)) & GameState.FULL;
+    }
+
+    public boolean isGameOver() {
+        return get(closed[depth], 0);
+    }
+
+    /**
+     * Returns the winner of the whole board, NONE while undecided or drawn.
+     */
+    public Player getWinner() {
+        return getOwner(depth, 0);
+    }
+
+    public boolean isDraw() {
+        return isGameOver() && getWinner() == Player.NONE;
+    }
+
+    /**
+     * Level and index of the node the next move must be inside. Once the
+     * game is over this is the whole board, which has no legal moves.
+     */
+    public int getConstraintLevel() {
+        return constraintLevel;
+    }
+
+    public int getConstraintIndex() {
+        return constraintIndex;
+    }
+
+    /**
+     * Returns true if a cell is a legal move for the current player.
+     */
+    public boolean isLegal(int cell) {
+        if (cell < 0 || cell >= nodes[0] || isGameOver() || get(closed[0], cell)) return false;
+        int index = cell;
+        for (int level = 1; level <= depth; level++) {
+            index /= 9;
+            if (get(closed[level], index)) return false;
+            if (level == constraintLevel) return index == constraintIndex;
+        }
+        return true;
+    }
+
+    /**
+     * Writes every legal move into out (which must hold getLegalMoveCapacity()
+     * entries) and returns how many there are. Closed boards are skipped
+     * whole, so the cost follows the open part of the allowed area.
+     */
+    public int legalMoves(int[] out) {
+        if (isGameOver()) return 0;
+        return collect(constraintLevel, constraintIndex, out, 0);
+    }
+
+    private int collect(int level, int index, int[] out, int count) {
+        if (get(closed[level], index)) return count;
+        if (level == 1) {
+            int base = index * 9;
+            for (int free = getChildMask(Player.NONE, 1, index); free != 0; free &= free - 1) {
+                out[count++] = base + Integer.numberOfTrailingZeros(free);
+            }
+            return count;
+        }
+        for (int child = index * 9; child < index * 9 + 9; child++) {
+            count = collect(level - 1, child, out, count);
+        }
+        return count;
+    }
+
+    /**
+     * Size needed for the array passed to legalMoves.
+     */
+    public int getLegalMoveCapacity() {
+        return nodes[0];
+    }
+
+    /**
+     * Plays a cell for the current player. Returns false if the move is illegal.
+     */
+    public boolean makeMove(int cell) {
+        if (!isLegal(cell)) return false;
+        boolean x = currentPlayer == Player.X;
+        long[][] own = x ? xWon : oWon;
+
+        // Set the cell, then propagate up while nodes get won or filled
+        set(own[0], cell);
+        set(closed[0], cell);
+        int changed = 0;                                        // levels whose node was closed by this move
+        int won = 0;                                            // bit L-1 set if the level L node was won
+        int index = cell;
+        for (int level = 1; level <= depth; level++) {
+            index /= 9;
+            int base = index * 9;
+            if (GameState.WINS[nine(own[level - 1], base)]) {
+                set(own[level], index);
+                won |= 1 << (level - 1);
+            } else if (nine(closed[level - 1], base) != GameState.FULL) {
+                break;
+            }
+            set(closed[level], index);
+            changed = level;
+        }
+
+        if (moves == undo.length) undo = Arrays.copyOf(undo, moves * 2);
+        undo[moves++] = (long) cell | (long) changed << 20 | (long) won << 24
+                | (long) constraintLevel << 32 | (long) constraintIndex << 36;
+        route(cell);
+        if (!isGameOver()) currentPlayer = currentPlayer.opposite();
+        return true;
+    }
+
+    /**
+     * Takes back the last move. Returns false if there is none.
+     */
+    public boolean undoMove() {
+        if (moves == 0) return false;
+        long token = undo[--moves];
+        int cell = (int) (token & 0xFFFFF);
+        int changed = (int) (token >>> 20 & 0xF);
+        int won = (int) (token >>> 24 & 0xFF);
+        boolean over = isGameOver();
+        Player mover = getOwner(0, cell);
+        long[][] own = mover == Player.X ? xWon : oWon;
+        clear(own[0], cell);
+        clear(closed[0], cell);
+        int index = cell;
+        for (int level = 1; level <= changed; level++) {
+            index /= 9;
+            if ((won & 1 << (level - 1)) != 0) clear(own[level], index);
+            clear(closed[level], index);
+        }
+        constraintLevel = (int) (token >>> 32 & 0xF);
+        constraintIndex = (int) (token >>> 36);
+        if (!over) currentPlayer = currentPlayer.opposite();
+        return true;
+    }
+
+    /**
+     * Sets the constraint after a move to the cell: drop its top digit to get
+     * the target level 1 board, then widen to the nearest open ancestor.
+     */
+    private void route(int cell) {
+        int level = 1;
+        int index = depth == 1 ? 0 : cell % nodes[1];
+        // Any closed node on the target's chain closes everything below it
+        for (int l = 1, i = index; l <= depth; l++, i /= 9) {
+            if (get(closed[l], i)) {
+                level = l + 1;
+                index = i / 9;
+            }
+        }
+        if (level > depth) {
+            level = depth;
+            index = 0;
+        }
+        constraintLevel = level;
+        constraintIndex = index;
+    }
+
+    /**
+     * Cell index of the cell at (row, col) on the full 3^k x 3^k grid.
+     */
+    public int cellAt(int row, int col) {
+        int cell = 0;
+        for (int size = pow3(depth - 1); size >= 1; size /= 3) {
+            cell = cell * 9 + (row / size % 3) * 3 + (col / size % 3);
+        }
+        return cell;
+    }
+
+    /**
+     * Row of a cell on the full 3^k x 3^k grid.
+     */
+    public int rowOf(int cell) {
+        int row = 0;
+        for (int level = 0, size = 1; level < depth; level++, size *= 3, cell /= 9) {
+            row += cell % 9 / 3 * size;
+        }
+        return row;
+    }
+
+    /**
+     * Column of a cell on the full 3^k x 3^k grid.
+     */
+    public int colOf(int cell) {
+        int col = 0;
+        for (int level = 0, size = 1; level < depth; level++, size *= 3, cell /= 9) {
+            col += cell % 3 * size;
+        }
+        return col;
+    }
+
+    // 9 consecutive bits of a bitset starting at bit 'from'
+    private static int nine(long[] bits, int from) {
+        int word = from >>> 6;
+        int shift = from & 63;
+        long value = bits[word] >>> shift;
+        if (shift > 55 && word + 1 < bits.length) value |= bits[word + 1] << (64 - shift);
+        return (int) value & GameState.FULL;
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & 1L << i) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static void clear(long[] bits, int i) {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+
+    static int pow9(int k) {
+        int n = 1;
+        for (int i = 0; i < k; i++) n *= 9;
+        return n;
+    }
+
+    private static int pow3(int k) {
+        int n = 1;
+        for (int i = 0; i < k; i++) n *= 3;
+        return n;
+    }
+}
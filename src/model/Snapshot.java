@@ -0,0 +1,166 @@
+package model;
+
+/**
+ * Immutable copy of a GameState: the board packed into a few longs plus the
+ * move history. Any thread may read a snapshot while the game it came from
+ * keeps changing, so renderers, the move list and persistence read these
+ * instead of sharing the mutable GameState with whoever plays the moves.
+ *
+ * The getters mirror GameState's, so drawing code reads the same either way.
+ * toGameState() rebuilds a private mutable copy, e.g. for an engine to search.
+ */
+public final class Snapshot {
+    // Layout of rest: X cells of sub-boards 7-8, O cells of 7-8, X won, O won, next + 2, O to move
+    private static final int O_LOW_SHIFT = 18;
+    private static final int X_WON_SHIFT = 36;
+    private static final int O_WON_SHIFT = 45;
+    private static final int NEXT_SHIFT = 54;
+    private static final int O_TO_MOVE_SHIFT = 58;
+    private static final int LOW_BOARDS = 7;              // sub-boards packed in x and o
+
+    private final long x;                                 // X cells of sub-boards 0-6, 9 bits each
+    private final long o;                                 // O cells of sub-boards 0-6
+    private final long rest;
+    private final long hash;
+    private final int closed;                             // sub-boards won or full
+    private final byte[] moves;                           // packed as in MoveLog; never modified
+    private final boolean replayable;                     // every logged move was played on this board
+
+    Snapshot(int[] xCells, int[] oCells, int xWon, int oWon, int closed, Player currentPlayer,
+             int nextActiveSubBoard, long hash, byte[] moves, boolean replayable) {
+        long xs = 0, os = 0;
+        for (int sb = 0; sb < LOW_BOARDS; sb++) {
+            xs |= (long) xCells[sb] << sb * 9;
+            os |= (long) oCells[sb] << sb * 9;
+        }
+        this.x = xs;
+        this.o = os;
+        this.rest = xCells[7] | (long) xCells[8] << 9
+                | (long) oCells[7] << O_LOW_SHIFT | (long) oCells[8] << O_LOW_SHIFT + 9
+                | (long) xWon << X_WON_SHIFT | (long) oWon << O_WON_SHIFT
+                | (long) (nextActiveSubBoard + 2) << NEXT_SHIFT
+                | (currentPlayer == Player.O ? 1L : 0L) << O_TO_MOVE_SHIFT;
+        this.hash = hash;
+        this.closed = closed;
+        this.moves = moves;
+        this.replayable = replayable;
+    }
+
+    /**
+     * Returns the 9-bit mask of cells a player owns in a sub-board (bit = row*3+col);
+     * NONE gives the empty cells.
+     */
+    public int getCellMask(Player p, int sb) {
+        if (p == Player.NONE) return ~(cells(x, 0, sb) | cells(o, O_LOW_SHIFT, sb)) & GameState.FULL;
+        return p == Player.X ? cells(x, 0, sb) : cells(o, O_LOW_SHIFT, sb);
+    }
+
+    private int cells(long low, int restShift, int sb) {
+        if (sb < LOW_BOARDS) return (int) (low >>> sb * 9) & GameState.FULL;
+        return (int) (rest >>> restShift + (sb - LOW_BOARDS) * 9) & GameState.FULL;
+    }
+
+    public Player getCell(int sb, int r, int c) {
+        int bit = 1 << (r * 3 + c);
+        if ((getCellMask(Player.X, sb) & bit) != 0) return Player.X;
+        return (getCellMask(Player.O, sb) & bit) != 0 ? Player.O : Player.NONE;
+    }
+
+    /**
+     * Returns the 9-bit mask of sub-boards a player has won.
+     */
+    public int getWonMask(Player p) {
+        if (p == Player.NONE) return 0;
+        return (int) (rest >>> (p == Player.X ? X_WON_SHIFT : O_WON_SHIFT)) & GameState.FULL;
+    }
+
+    public Player getSubBoardWinner(int sb) {
+        int bit = 1 << sb;
+        if ((getWonMask(Player.X) & bit) != 0) return Player.X;
+        return (getWonMask(Player.O) & bit) != 0 ? Player.O : Player.NONE;
+    }
+
+    public int getClosedMask() {
+        return closed;
+    }
+
+    public Player getCurrentPlayer() {
+        return (rest >>> O_TO_MOVE_SHIFT & 1) != 0 ? Player.O : Player.X;
+    }
+
+    public int getNextActiveSubBoard() {
+        return (int) (rest >>> NEXT_SHIFT & 0xF) - 2;
+    }
+
+    public Player getGameWinner() {
+        return SubBoard.winner(SubBoard.index(getWonMask(Player.X), getWonMask(Player.O)));
+    }
+
+    public boolean isGameOver() {
+        return SubBoard.isWon(SubBoard.index(getWonMask(Player.X), getWonMask(Player.O)));
+    }
+
+    public boolean isDraw() {
+        return closed == GameState.FULL && !isGameOver();
+    }
+
+    /**
+     * Returns a 9-bit mask of the sub-boards the current player may play in.
+     */
+    public int activeSubBoardMask() {
+        if (isGameOver()) return 0;
+        int open = ~closed & GameState.FULL;
+        int next = getNextActiveSubBoard();
+        return next >= 0 ? open & (1 << next) : open;
+    }
+
+    /**
+     * Returns a 9-bit mask of the cells that are legal moves in a sub-board.
+     */
+    public int legalCellMask(int sb) {
+        if ((activeSubBoardMask() & (1 << sb)) == 0) return 0;
+        return getCellMask(Player.NONE, sb);
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Number of moves in the history.
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Returns move i as MoveLog stores it: the encoded move with bit 7 set for O.
+     */
+    public int packedMove(int i) {
+        return moves[i] & 0xFF;
+    }
+
+    /**
+     * Builds a mutable GameState of this position. When the whole history was
+     * played on the board, it is replayed so every move can be undone;
+     * otherwise (a game loaded from an old save) the board is set directly.
+     */
+    public GameState toGameState() {
+        MoveLog log = new MoveLog();
+        for (byte b : moves) log.append((b & 0x80) != 0 ? Player.O : Player.X, b & 0x7F);
+        GameState state = new GameState();
+        if (replayable && state.replay(log, log.size()) && state.getHash() == hash) return state;
+
+        state.reset();
+        for (int sb = 0; sb < 9; sb++) {
+            for (int cell = 0; cell < 9; cell++) {
+                state.setCell(sb, cell / 3, cell % 3, getCell(sb, cell / 3, cell % 3));
+            }
+            state.setSubBoardWinner(sb, getSubBoardWinner(sb));
+        }
+        state.setCurrentPlayer(getCurrentPlayer());
+        state.setNextActiveSubBoard(getNextActiveSubBoard());
+        state.getMoveLog().copyFrom(log);
+        return state;
+    }
+}
@@ -1,30 +1,149 @@
 package model;
 
 /**
- * Represents a 3×3 tic-tac-toe sub-board.
- * Tracks individual cells, determines if it's won or full.
+ * Represents a 3×3 tic-tac-toe board, stored as one base-3 state index:
+ * digit i (weight 3^i) is 0 for an empty cell i, 1 for X, 2 for O, so the
+ * 19683 possible boards are numbered 0 .. STATES-1.
+ *
+ * Everything derived from a board - winner, full-ness, open two-in-a-rows
+ * per player and a heuristic score - is precomputed once per state, so a
+ * query is a single array lookup instead of a scan of the eight lines.
+ * The static tables are shared by GameState (for its sub-boards and the
+ * big board) and by the evaluators of the AI engines.
  */
 public class SubBoard {
     public static final int SIZE = 3;            // dimension of sub-board
-    private final Cell[] cells;                  // flat array of SIZE*SIZE cells
+    public static final int STATES = 19683;      // 3^9 boards
+
+    private static final int[] LINES = {0007, 0070, 0700, 0111, 0222, 0444, 0421, 0124};
+    private static final int CENTRE = 0020;
+    private static final int THREAT_SCORE = 6;   // per open two-in-a-row
+    private static final int WIN_SCORE = 100;
+
+    // Per state: winner code (0 none, 1 X, 2 O) in bits 0-1, full in bit 2,
+    // open two-in-a-rows of X in bits 3-6 and of O in bits 7-10
+    private static final short[] INFO = new short[STATES];
+    private static final short[] SCORE = new short[STATES];
+    private static final short[] TERNARY = new short[1 << 9];   // 9-bit mask -> same cells as base-3 ones
+    private static final Player[] WINNER = {Player.NONE, Player.X, Player.O};
+
+    static {
+        for (int mask = 0; mask < TERNARY.length; mask++) {
+            int value = 0;
+            for (int cell = 8; cell >= 0; cell--) {
+                value = value * 3 + (mask >>> cell & 1);
+            }
+            TERNARY[mask] = (short) value;
+        }
+        for (int index = 0; index < STATES; index++) {
+            int x = 0;
+            int o = 0;
+            for (int cell = 0, rest = index; cell < 9; cell++, rest /= 3) {
+                if (rest % 3 == 1) x |= 1 << cell;
+                if (rest % 3 == 2) o |= 1 << cell;
+            }
+            int winner = GameState.WINS[x] ? 1 : (GameState.WINS[o] ? 2 : 0);
+            boolean full = (x | o) == GameState.FULL;
+            int xThreats = countThreats(x, o);
+            int oThreats = countThreats(o, x);
+            INFO[index] = (short) (winner | (full ? 4 : 0) | xThreats << 3 | oThreats << 7);
+
+            int score = 0;                       // a drawn board is worth nothing
+            if (winner != 0) {
+                score = winner == 1 ? WIN_SCORE : -WIN_SCORE;
+            } else if (!full) {
+                score = THREAT_SCORE * (xThreats - oThreats)
+                        + ((x & CENTRE) != 0 ? 1 : 0) - ((o & CENTRE) != 0 ? 1 : 0);
+            }
+            SCORE[index] = (short) score;
+        }
+    }
+
+    private int state;                           // base-3 index of the cells
     private Player winner = Player.NONE;         // current winner of this sub-board
     private boolean full = false;                // whether all cells are filled
 
     /**
-     * Initializes empty cells for this sub-board.
+     * Returns the state index of a board given as the cell masks of X and O
+     * (bit i = cell i); the masks must not overlap.
+     */
+    public static int index(int xMask, int oMask) {
+        return TERNARY[xMask] + 2 * TERNARY[oMask];
+    }
+
+    /**
+     * Winner of a board state: NONE, X or O (X if, impossibly, both have a line).
      */
-    public SubBoard() {
-        cells = new Cell[SIZE * SIZE];
-        for (int i = 0; i < SIZE * SIZE; i++) {
-            cells[i] = new Cell();
+    public static Player winner(int index) {
+        return WINNER[INFO[index] & 3];
+    }
+
+    /**
+     * Returns true if a board state has three in a row.
+     */
+    public static boolean isWon(int index) {
+        return (INFO[index] & 3) != 0;
+    }
+
+    /**
+     * Returns true if every cell of a board state is taken.
+     */
+    public static boolean isFull(int index) {
+        return (INFO[index] & 4) != 0;
+    }
+
+    /**
+     * Returns true if a board state is won or full.
+     */
+    public static boolean isClosed(int index) {
+        return (INFO[index] & 7) != 0;
+    }
+
+    /**
+     * Number of lines where a player has two cells and the third is empty.
+     */
+    public static int threats(int index, Player p) {
+        return INFO[index] >>> (p == Player.X ? 3 : 7) & 0xF;
+    }
+
+    /**
+     * Heuristic value of a board state from X's point of view: +-100 once won,
+     * 0 once drawn, otherwise 6 per open two-in-a-row (X's minus O's) plus 1
+     * for the centre.
+     */
+    public static int score(int index) {
+        return SCORE[index];
+    }
+
+    private static int countThreats(int own, int blocked) {
+        int count = 0;
+        for (int line : LINES) {
+            if ((blocked & line) == 0 && Integer.bitCount(own & line) == 2) count++;
         }
+        return count;
     }
 
     /**
-     * Returns the Cell at the given index (0-8).
+     * Returns the owner of a cell (0-8).
      */
-    public Cell getCell(int idx) {
-        return cells[idx];
+    public Player getOwner(int cell) {
+        return WINNER[state / pow3(cell) % 3];
+    }
+
+    /**
+     * Sets the owner of a cell (0-8); call updateStatus afterwards.
+     */
+    public void setOwner(int cell, Player owner) {
+        int weight = pow3(cell);
+        int digit = owner == Player.X ? 1 : (owner == Player.O ? 2 : 0);
+        state += (digit - state / weight % 3) * weight;
+    }
+
+    /**
+     * Returns the base-3 state index of this board.
+     */
+    public int getIndex() {
+        return state;
     }
 
     /**
@@ -49,33 +168,16 @@ public class SubBoard {
     }
 
     /**
-     * Updates winner and full status based on current cells.
-     * Checks all three-in-a-row lines; if found, sets winner.
-     * Otherwise marks full only if no empty cells remain.
+     * Updates winner and full status from the tables.
      */
     public void updateStatus() {
-        int[][] lines = {
-                {0, 1, 2}, {3, 4, 5}, {6, 7, 8},  // rows
-                {0, 3, 6}, {1, 4, 7}, {2, 5, 8},  // columns
-                {0, 4, 8}, {2, 4, 6}              // diagonals
-        };
-        // Check each win line
-        for (int[] line : lines) {
-            Player p = cells[line[0]].getOwner();
-            if (p != Player.NONE
-                    && p == cells[line[1]].getOwner()
-                    && p == cells[line[2]].getOwner()) {
-                winner = p;
-                return;
-            }
-        }
-        // No winner: check if all cells are occupied
-        full = true;
-        for (Cell c : cells) {
-            if (c.isEmpty()) {
-                full = false;
-                break;
-            }
-        }
+        winner = winner(state);
+        full = isFull(state);
+    }
+
+    private static int pow3(int k) {
+        int n = 1;
+        for (int i = 0; i < k; i++) n *= 3;
+        return n;
     }
 }
@@ -0,0 +1,50 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of a GameState.
+ * A position's key is the XOR of the keys of everything on the board,
+ * so GameState can update it incrementally as pieces come and go.
+ * The seed is fixed so keys (and stored hashes) are stable between runs.
+ */
+final class Zobrist {
+    static final long[][] CELL = new long[2][81];   // [X/O][encoded move]
+    static final long[][] WON = new long[2][9];     // [X/O][sub-board]
+    static final long[] NEXT = new long[11];        // forced sub-board + 2 (-2..8)
+    static final long O_TO_MOVE;                    // toggled when O is the side to move
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_7AC7_0E00L);
+        for (int p = 0; p < 2; p++) {
+            for (int i = 0; i < 81; i++) CELL[p][i] = random.nextLong();
+            for (int i = 0; i < 9; i++) WON[p][i] = random.nextLong();
+        }
+        for (int i = 0; i < NEXT.length; i++) NEXT[i] = random.nextLong();
+        O_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Key of a cell owned by the given player (0 for NONE).
+     */
+    static long cell(Player p, int move) {
+        return p == Player.NONE ? 0 : CELL[p.ordinal()][move];
+    }
+
+    /**
+     * Key of a sub-board won by the given player (0 for NONE).
+     */
+    static long won(Player p, int subBoard) {
+        return p == Player.NONE ? 0 : WON[p.ordinal()][subBoard];
+    }
+
+    /**
+     * Key of the side to move.
+     */
+    static long side(Player p) {
+        return p == Player.O ? O_TO_MOVE : 0;
+    }
+}
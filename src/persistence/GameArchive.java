@@ -0,0 +1,315 @@
+package persistence;
+
+import model.GameState;
+import model.Move;
+import model.MoveLog;
+import model.Player;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * Memory-mapped archive of finished games, each played from the empty board.
+ * Game id n is stored at a fixed stride after the header, so locating a game
+ * is arithmetic rather than a lookup. The file is mapped in segments of 2^20
+ * games; records are read straight from the mapping (zero-copy), and
+ * appends from several threads only contend on an id counter.
+ *
+ * An id is reserved before its record is written, and a game only becomes
+ * visible (size(), scans, the header count) once it and every game before
+ * it are complete, so readers never see a half-written record. The header
+ * count lives in the mapping too, so the games survive the process dying
+ * without a flush(); flush() forces them to the disk.
+ *
+ * Header (64 bytes): magic "UTTA", version (4), stride (4), game count (8).
+ * Record (STRIDE bytes): number of moves, result (0 = draw, 1 = X, 2 = O),
+ * then one encoded move per byte, X moving first.
+ */
+public class GameArchive implements Closeable {
+    public static final int STRIDE = 84;
+    private static final byte[] MAGIC = {'U', 'T', 'T', 'A'};
+    private static final int VERSION = 1;
+    private static final int HEADER = 64;
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    private static final long SEGMENT_BYTES = (long) STRIDE << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private final AtomicLong reserved;                  // ids handed out to appends
+    private final AtomicLong count;                     // games completely written, in id order
+
+    private GameArchive(FileChannel channel) throws IOException {
+        this.channel = channel;
+        boolean fresh = channel.size() == 0;
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+        if (fresh) {
+            header.put(0, MAGIC).putInt(4, VERSION).putInt(8, STRIDE).putLong(12, 0);
+        } else {
+            byte[] magic = new byte[MAGIC.length];
+            header.get(0, magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("not a game archive");
+            if (header.getInt(4) != VERSION || header.getInt(8) != STRIDE) {
+                throw new IOException("unsupported game archive version");
+            }
+        }
+        count = new AtomicLong(header.getLong(12));
+        reserved = new AtomicLong(count.get());
+    }
+
+    /**
+     * Opens an archive file, creating an empty one if it does not exist.
+     */
+    public static GameArchive open(File file) throws IOException {
+        return new GameArchive(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Number of games in the archive.
+     */
+    public long size() {
+        return count.get();
+    }
+
+    /**
+     * Appends a finished game given as encoded moves; returns its id. Safe to
+     * call from several threads. The game is visible once this returns.
+     */
+    public long append(byte[] moves, int length, Player winner) throws IOException {
+        if (length < 0 || length > Move.COUNT || length > moves.length) {
+            throw new IllegalArgumentException("bad game length " + length);
+        }
+        long id = reserved.getAndIncrement();
+        int offset = (int) (id & SEGMENT_MASK) * STRIDE;
+        MappedByteBuffer segment = null;
+        try {
+            segment = segment((int) (id >>> SEGMENT_SHIFT));
+            segment.put(offset, (byte) length);
+            segment.put(offset + 1, (byte) (winner == Player.X ? 1 : winner == Player.O ? 2 : 0));
+            segment.put(offset + 2, moves, 0, length);
+        } catch (Throwable t) {
+            // The id must still be committed or later appends wait forever; publish it as an empty game
+            if (segment != null) segment.put(offset, (byte) 0);
+            throw t;
+        } finally {
+            commit(id);
+        }
+        return id;
+    }
+
+    /**
+     * Publishes a written game once the games before it are published. The
+     * wait is normally a concurrent append's few stores; it yields in case
+     * that thread was descheduled.
+     */
+    private void commit(long id) {
+        for (int spins = 0; count.get() != id; spins++) {
+            if (spins < 100) Thread.onSpinWait();
+            else Thread.yield();
+        }
+        header.putLong(12, id + 1);
+        count.set(id + 1);
+    }
+
+    /**
+     * Appends a game from its move log; the game must have started from the empty board.
+     */
+    public long append(GameState state) throws IOException {
+        MoveLog log = state.getMoveLog();
+        byte[] moves = new byte[log.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (byte) log.move(i);
+        }
+        return append(moves, moves.length, state.getGameWinner());
+    }
+
+    /**
+     * Number of moves in a game.
+     */
+    public int length(long id) {
+        return record(id).get(offset(id)) & 0xFF;
+    }
+
+    /**
+     * Winner of a game, NONE for a draw.
+     */
+    public Player result(long id) {
+        return switch (record(id).get(offset(id) + 1)) {
+            case 1 -> Player.X;
+            case 2 -> Player.O;
+            default -> Player.NONE;
+        };
+    }
+
+    /**
+     * Encoded move number ply (0-based) of a game.
+     */
+    public int move(long id, int ply) {
+        MappedByteBuffer segment = record(id);
+        int offset = offset(id);
+        if (ply < 0 || ply >= (segment.get(offset) & 0xFF)) {
+            throw new IndexOutOfBoundsException("game " + id + " has no move " + ply);
+        }
+        return segment.get(offset + 2 + ply);
+    }
+
+    /**
+     * Replays a game into the given state, reading moves straight from the mapping.
+     */
+    public void replay(long id, GameState into) {
+        MappedByteBuffer segment = record(id);
+        int offset = offset(id);
+        int length = segment.get(offset) & 0xFF;
+        into.reset();
+        for (int i = 0; i < length; i++) {
+            into.makeMove(segment.get(offset + 2 + i));
+        }
+    }
+
+    /**
+     * Visits every game in parallel: each worker folds game ids into its own
+     * accumulator, and the accumulators are then combined.
+     */
+    public <R> R scan(Supplier<R> supplier, ObjLongConsumer<R> accumulator, BiConsumer<R, R> combiner) {
+        return LongStream.range(0, size()).parallel().collect(supplier, accumulator, combiner);
+    }
+
+    /**
+     * Win rates and average length by opening move, computed with a parallel scan.
+     */
+    public OpeningStats openingStats() {
+        return scan(OpeningStats::new, (stats, id) -> stats.add(this, id), OpeningStats::merge);
+    }
+
+    /**
+     * Forces the games and the header count to disk.
+     */
+    public void flush() {
+        header.force();
+        for (MappedByteBuffer segment : segments) segment.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private MappedByteBuffer record(long id) {
+        if (id < 0 || id >= count.get()) throw new IndexOutOfBoundsException("no game " + id);
+        return segmentUnchecked((int) (id >>> SEGMENT_SHIFT));
+    }
+
+    private static int offset(long id) {
+        return (int) (id & SEGMENT_MASK) * STRIDE;
+    }
+
+    private MappedByteBuffer segmentUnchecked(int index) {
+        try {
+            return segment(index);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot map archive segment " + index, e);
+        }
+    }
+
+    /**
+     * Returns a segment's mapping, mapping it (and growing the file) on first use.
+     */
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer[] current = segments;
+        if (index < current.length) return current[index];
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+                for (int i = current.length; i <= index; i++) {
+                    grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + i * SEGMENT_BYTES, SEGMENT_BYTES);
+                }
+                segments = grown;
+                current = grown;
+            }
+            return current[index];
+        }
+    }
+
+    /**
+     * Per-opening-move results: games, X wins, O wins and total moves.
+     */
+    public static final class OpeningStats {
+        private final long[] games = new long[81];
+        private final long[] xWins = new long[81];
+        private final long[] oWins = new long[81];
+        private final long[] moves = new long[81];
+
+        void add(GameArchive archive, long id) {
+            int length = archive.length(id);
+            if (length == 0) return;
+            int opening = archive.move(id, 0);
+            Player winner = archive.result(id);
+            games[opening]++;
+            moves[opening] += length;
+            if (winner == Player.X) xWins[opening]++;
+            else if (winner == Player.O) oWins[opening]++;
+        }
+
+        void merge(OpeningStats other) {
+            for (int i = 0; i < 81; i++) {
+                games[i] += other.games[i];
+                xWins[i] += other.xWins[i];
+                oWins[i] += other.oWins[i];
+                moves[i] += other.moves[i];
+            }
+        }
+
+        public long games(int opening) {
+            return games[opening];
+        }
+
+        public double xWinRate(int opening) {
+            return games[opening] == 0 ? 0 : (double) xWins[opening] / games[opening];
+        }
+
+        public double oWinRate(int opening) {
+            return games[opening] == 0 ? 0 : (double) oWins[opening] / games[opening];
+        }
+
+        public double averageLength(int opening) {
+            return games[opening] == 0 ? 0 : (double) moves[opening] / games[opening];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("opening   games      X win   O win   avg length\n");
+            for (int i = 0; i < 81; i++) {
+                if (games[i] == 0) continue;
+                sb.append(String.format("%d:%d  %10d  %6.2f%%  %6.2f%%  %6.1f%n", i / 9, i % 9, games[i],
+                        xWinRate(i) * 100, oWinRate(i) * 100, averageLength(i)));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Prints opening statistics for an archive: java persistence.GameArchive FILE
+     */
+    public static void main(String[] args) throws IOException {
+        try (GameArchive archive = open(new File(args[0]))) {
+            long start = System.nanoTime();
+            OpeningStats stats = archive.openingStats();
+            System.out.print(stats);
+            System.out.printf("%,d games scanned in %.1f ms%n", archive.size(), (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
@@ -1,16 +1,31 @@
 package persistence;
 
 import model.GameState;
+import model.Move;
+import model.MoveLog;
 import model.Player;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
 
 /**
- * GamePersistence handles saving and loading the GameState to and from a text file.
- * It writes the current player, the active sub-board index, each sub-board's winner,
- * the cell contents, and the move history in a simple line-based format.
+ * GamePersistence handles saving and loading the GameState to and from a file.
+ * The text format writes the current player, the active sub-board index, each
+ * sub-board's winner, the cell contents, and the move history line by line.
+ * The compact binary format stores the same information in about a hundred
+ * bytes; loadFromText recognises both, so older save files keep working.
  */
 public class GamePersistence {
+    // Binary format: magic "UTTB", version, then the fields listed in toBytes
+    private static final byte[] MAGIC = {'U', 'T', 'T', 'B'};
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;           // bytes before the move list
+    private static final int CHECKSUM = 4;          // trailing CRC32
 
     /**
      * Saves the provided GameState to a text file.
@@ -61,20 +76,30 @@ public class GamePersistence {
     }
 
     /**
-     * Loads a GameState from the specified text file.
-     * Expects the same format produced by saveAsText.
+     * Loads a GameState from the specified file.
+     * Accepts both the text format produced by saveAsText and the binary
+     * format produced by saveAsBinary, detected by the binary magic header.
      *
      * file the file to read from
      * the reconstructed GameState
      * IOException if an I/O error occurs or the format is invalid
      */
     public static GameState loadFromText(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (isBinary(bytes)) {
+            return fromBytes(bytes);
+        }
         GameState state = new GameState();
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes), Charset.defaultCharset()))) {
             // Read current player
             state.setCurrentPlayer(Player.valueOf(reader.readLine()));
-            // Read next active sub-board index
-            state.setNextActiveSubBoard(Integer.parseInt(reader.readLine()));
+            // Read next active sub-board index (-2 once the game is won, -1 for any)
+            int next = Integer.parseInt(reader.readLine());
+            if (next < -2 || next > 8) {
+                throw new IOException("save file is corrupt (next sub-board " + next + " out of range)");
+            }
+            state.setNextActiveSubBoard(next);
 
             // Load each sub-board's winner and cells
             for (int sb = 0; sb < 9; sb++) {
@@ -92,11 +117,187 @@ public class GamePersistence {
             if (line != null && line.startsWith("MOVES=")) {
                 int count = Integer.parseInt(line.substring(6));
                 for (int i = 0; i < count; i++) {
-                    String move = reader.readLine();
-                    state.getMoveHistory().add(move);
+                    int move = parseMove(reader.readLine());
+                    state.getMoveLog().append((move & 0x80) != 0 ? Player.O : Player.X, move & 0x7F);
                 }
             }
         }
-        return state;
+        return replayed(state);
+    }
+
+    /**
+     * Saves the GameState in the compact binary format (see toBytes).
+     * The file is replaced atomically, so a crash never leaves half a save.
+     */
+    public static void saveAsBinary(GameState state, File file) throws IOException {
+        writeAtomically(file, toBytes(state));
+    }
+
+    /**
+     * Writes the bytes to a temporary file next to the target, then moves it
+     * over the target in one step.
+     */
+    static void writeAtomically(File file, byte[] bytes) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, bytes);
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Loads a GameState written by saveAsBinary.
+     */
+    public static GameState loadFromBinary(File file) throws IOException {
+        return fromBytes(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Returns true if the bytes start with the binary format's magic header.
+     */
+    public static boolean isBinary(byte[] bytes) {
+        if (bytes.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encodes a GameState in the binary format:
+     * bytes 0-3   magic "UTTB"
+     * byte 4      format version
+     * byte 5      bit 0: O to move; bits 1-4: next active sub-board + 2
+     * bytes 6-26  81 cells, 2 bits each (0 = NONE, 1 = X, 2 = O), cell sb*9+i at bit 2*(sb*9+i)
+     * bytes 27-29 9 sub-board winners, 2 bits each
+     * bytes 30-31 number of moves (big-endian)
+     * then        one byte per move: bit 7 set for O, bits 0-6 the encoded move
+     * last 4      CRC32 of everything before it (big-endian)
+     */
+    public static byte[] toBytes(GameState state) {
+        MoveLog moves = state.getMoveLog();
+        byte[] out = new byte[HEADER + moves.size() + CHECKSUM];
+        System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+        out[4] = VERSION;
+        out[5] = (byte) ((state.getCurrentPlayer() == Player.O ? 1 : 0) | (state.getNextActiveSubBoard() + 2) << 1);
+        for (int sb = 0; sb < 9; sb++) {
+            for (int i = 0; i < 9; i++) {
+                putBits(out, 6, sb * 9 + i, state.getCell(sb, i / 3, i % 3));
+            }
+            putBits(out, 27, sb, state.getSubBoardWinner(sb));
+        }
+        out[30] = (byte) (moves.size() >>> 8);
+        out[31] = (byte) moves.size();
+        for (int i = 0; i < moves.size(); i++) {
+            out[HEADER + i] = (byte) moves.packed(i);
+        }
+        writeChecksum(out, out.length - CHECKSUM);
+        return out;
+    }
+
+    /**
+     * Decodes a GameState produced by toBytes, verifying header and checksum.
+     */
+    public static GameState fromBytes(byte[] bytes) throws IOException {
+        if (!isBinary(bytes) || bytes.length < HEADER + CHECKSUM) {
+            throw new IOException("not a binary save file");
+        }
+        if (bytes[4] != VERSION) {
+            throw new IOException("unsupported save format version " + bytes[4]);
+        }
+        int count = (bytes[30] & 0xFF) << 8 | bytes[31] & 0xFF;
+        int end = HEADER + count;
+        if (bytes.length != end + CHECKSUM || readChecksum(bytes, end) != checksum(bytes, end)) {
+            throw new IOException("save file is corrupt (checksum mismatch)");
+        }
+        GameState state = new GameState();
+        state.setCurrentPlayer((bytes[5] & 1) != 0 ? Player.O : Player.X);
+        int next = (bytes[5] >>> 1 & 0xF) - 2;
+        if (next > 8) {
+            throw new IOException("save file is corrupt (next sub-board " + next + " out of range)");
+        }
+        state.setNextActiveSubBoard(next);
+        for (int sb = 0; sb < 9; sb++) {
+            for (int i = 0; i < 9; i++) {
+                state.setCell(sb, i / 3, i % 3, getBits(bytes, 6, sb * 9 + i));
+            }
+            state.setSubBoardWinner(sb, getBits(bytes, 27, sb));
+        }
+        for (int i = HEADER; i < end; i++) {
+            int b = bytes[i] & 0xFF;
+            state.getMoveLog().append((b & 0x80) != 0 ? Player.O : Player.X, b & 0x7F);
+        }
+        return replayed(state);
+    }
+
+    /**
+     * Rebuilds a loaded game by replaying its move log from the empty board,
+     * so its moves can be undone. Falls back to the loaded state when the log
+     * does not lead to the saved position (e.g. a hand-edited save).
+     */
+    private static GameState replayed(GameState loaded) {
+        MoveLog log = loaded.getMoveLog();
+        GameState state = new GameState();
+        if (state.replay(log, log.size()) && state.getHash() == loaded.getHash()) {
+            return state;
+        }
+        return loaded;
+    }
+
+    /**
+     * Converts a text history entry ("X → board 3, box 4") into a move byte.
+     */
+    static int parseMove(String entry) throws IOException {
+        Player player;
+        int board, box;
+        try {
+            player = Player.valueOf(entry.substring(0, entry.indexOf(' ')));
+            board = Integer.parseInt(entry.substring(entry.indexOf("board ") + 6, entry.indexOf(',')).trim());
+            box = Integer.parseInt(entry.substring(entry.indexOf("box ") + 4).trim());
+        } catch (RuntimeException e) {
+            throw new IOException("unreadable move history entry: " + entry, e);
+        }
+        if (board < 0 || board > 8 || box < 0 || box > 8) {
+            throw new IOException("move out of range in history entry: " + entry);
+        }
+        return Move.encode(board, box) | (player == Player.O ? 0x80 : 0);
+    }
+
+    private static void putBits(byte[] out, int offset, int index, Player p) {
+        int value = p == Player.X ? 1 : (p == Player.O ? 2 : 0);
+        out[offset + index / 4] |= (byte) (value << (index % 4) * 2);
+    }
+
+    private static Player getBits(byte[] in, int offset, int index) throws IOException {
+        return switch (in[offset + index / 4] >>> (index % 4) * 2 & 3) {
+            case 0 -> Player.NONE;
+            case 1 -> Player.X;
+            case 2 -> Player.O;
+            default -> throw new IOException("save file is corrupt (bad cell value)");
+        };
+    }
+
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    private static void writeChecksum(byte[] out, int at) {
+        long crc = checksum(out, at);
+        for (int i = 0; i < CHECKSUM; i++) {
+            out[at + i] = (byte) (crc >>> (24 - 8 * i));
+        }
+    }
+
+    private static long readChecksum(byte[] in, int at) {
+        long crc = 0;
+        for (int i = 0; i < CHECKSUM; i++) {
+            crc = crc << 8 | in[at + i] & 0xFF;
+        }
+        return crc;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package persistence;
+
+import model.GameState;
+import model.Move;
+import model.MoveLog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of a game in progress.
+ * The file starts with a snapshot of the game in the binary save format,
+ * followed by one fixed-size record per move or undo. Recording a move is a
+ * single 8-byte append; every COMPACT_EVERY records (or whenever the change
+ * cannot be expressed as moves and undos) the journal is rewritten atomically
+ * as a fresh snapshot. recover() rebuilds the game from the snapshot and the
+ * intact records, ignoring a record torn by a crash.
+ *
+ * Layout: magic "UTTJ", version, snapshot length (2 bytes), snapshot, records.
+ * Record: kind, move byte (bit 7 set for O), history length after it (2 bytes),
+ * CRC32 of those 4 bytes (4 bytes).
+ */
+public class MoveJournal implements Closeable {
+    private static final byte[] MAGIC = {'U', 'T', 'T', 'J'};
+    private static final int VERSION = 1;
+    private static final int HEADER = 7;
+    private static final int RECORD = 8;
+    private static final int COMPACT_EVERY = 256;
+    private static final byte MOVE = 1;
+    private static final byte UNDO = 2;
+
+    private final File file;
+    private final boolean sync;                     // force each record to disk
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD);
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private int basePly;                            // history length of the snapshot
+    private int ply;                                // history length after the last record
+    private long hash;                              // position after the last record
+    private final byte[] journalled = new byte[Move.COUNT];   // packed history the records describe
+    private int records;                            // records since the snapshot
+
+    private MoveJournal(File file, boolean sync) {
+        this.file = file;
+        this.sync = sync;
+    }
+
+    /**
+     * Starts a journal for the given game, replacing any previous journal.
+     * With sync set, every record is forced to the storage device (survives
+     * power loss); otherwise records survive a crash of the application only.
+     */
+    public static MoveJournal open(File file, GameState state, boolean sync) throws IOException {
+        MoveJournal journal = new MoveJournal(file, sync);
+        journal.compact(state);
+        return journal;
+    }
+
+    /**
+     * Records whatever happened to the game since the last call: a new move,
+     * one or more undos, or anything else (reset, load, undo then move),
+     * which compacts. Moves and undos are only appended when the journalled
+     * history and the game's agree up to the shorter of the two.
+     */
+    public void update(GameState state) throws IOException {
+        MoveLog log = state.getMoveLog();
+        int size = log.size();
+        if (size == ply && state.getHash() == hash) return;
+        if (size < basePly || !sharesHistory(log, Math.min(size, ply))) {
+            compact(state);
+            return;
+        }
+        if (size == ply + 1 && state.getLastMove() >= 0) {
+            append(MOVE, log.packed(size - 1), size);
+            journalled[size - 1] = (byte) log.packed(size - 1);
+        } else if (size < ply) {
+            for (int p = ply - 1; p >= size; p--) {
+                append(UNDO, 0, p);
+            }
+        } else {
+            compact(state);
+            return;
+        }
+        ply = size;
+        hash = state.getHash();
+        if (sync) channel.force(false);
+        if (records >= COMPACT_EVERY) compact(state);
+    }
+
+    /**
+     * Rewrites the journal as a snapshot of the current game with no records.
+     */
+    public void compact(GameState state) throws IOException {
+        byte[] snapshot = GamePersistence.toBytes(state);
+        byte[] bytes = new byte[HEADER + snapshot.length];
+        System.arraycopy(MAGIC, 0, bytes, 0, MAGIC.length);
+        bytes[4] = VERSION;
+        bytes[5] = (byte) (snapshot.length >>> 8);
+        bytes[6] = (byte) snapshot.length;
+        System.arraycopy(snapshot, 0, bytes, HEADER, snapshot.length);
+        if (channel != null) channel.close();
+        GamePersistence.writeAtomically(file, bytes);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        MoveLog log = state.getMoveLog();
+        basePly = ply = log.size();
+        for (int i = 0; i < ply; i++) journalled[i] = (byte) log.packed(i);
+        hash = state.getHash();
+        records = 0;
+    }
+
+    private boolean sharesHistory(MoveLog log, int length) {
+        for (int i = 0; i < length; i++) {
+            if (journalled[i] != (byte) log.packed(i)) return false;
+        }
+        return true;
+    }
+
+    private void append(byte kind, int move, int plyAfter) throws IOException {
+        record.clear();
+        record.put(kind).put((byte) move).putShort((short) plyAfter);
+        crc.reset();
+        crc.update(record.array(), 0, 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) channel.write(record);
+        records++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * Rebuilds the game recorded in a journal file. Replay stops at the first
+     * torn, corrupt or inconsistent record.
+     */
+    public static GameState recover(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (bytes.length < HEADER || !Arrays.equals(bytes, 0, 4, MAGIC, 0, 4)) {
+            throw new IOException("not a move journal");
+        }
+        if (bytes[4] != VERSION) {
+            throw new IOException("unsupported journal version " + bytes[4]);
+        }
+        int length = (bytes[5] & 0xFF) << 8 | bytes[6] & 0xFF;
+        if (bytes.length < HEADER + length) throw new IOException("journal snapshot is truncated");
+        GameState state = GamePersistence.fromBytes(Arrays.copyOfRange(bytes, HEADER, HEADER + length));
+
+        CRC32 crc = new CRC32();
+        ByteBuffer in = ByteBuffer.wrap(bytes, HEADER + length, bytes.length - HEADER - length);
+        while (in.remaining() >= RECORD) {
+            int start = in.position();
+            byte kind = in.get();
+            int move = in.get() & 0xFF;
+            int plyAfter = in.getShort() & 0xFFFF;
+            crc.reset();
+            crc.update(bytes, start, 4);
+            if (in.getInt() != (int) crc.getValue()) break;
+            boolean applied = kind == MOVE ? state.makeMove(move & 0x7F) : kind == UNDO && state.undoMove();
+            if (!applied || state.getMoveLog().size() != plyAfter) break;
+        }
+        return state;
+    }
+}
@@ -0,0 +1,252 @@
+package persistence;
+
+import model.GameState;
+import model.Snapshot;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs saves, loads and the autosave journal on one background thread, so
+ * a slow disk never blocks the caller (typically the Swing event thread).
+ * Each request takes the game's immutable Snapshot on the calling thread
+ * (free when the game publishes snapshots) and the background thread
+ * rebuilds a GameState from it, so the game can keep changing while the
+ * write completes; requests run in order.
+ *
+ * Autosave requests are coalesced: every change after the first one within
+ * the autosave interval only replaces the pending snapshot, and the journal
+ * is brought up to date once per interval. A single change is appended to
+ * the journal; several coalesced changes compact it, since the moves in
+ * between are gone. An interval of 0 journals every change as soon as the
+ * background thread gets to it.
+ */
+public class SaveService implements Closeable {
+    private final ScheduledThreadPoolExecutor executor;
+    private final long autosaveMillis;
+    private final AtomicReference<Pending> pending = new AtomicReference<>();
+    private MoveJournal journal;                     // only touched on the background thread
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final LongAdder autosaveRequests = new LongAdder();
+    private final LongAdder autosaveWrites = new LongAdder();
+
+    /**
+     * A snapshot waiting for the next autosave, with the time it was first
+     * requested and the number of changes coalesced into it.
+     */
+    private record Pending(Snapshot snapshot, long requested, int changes) {
+    }
+
+    /**
+     * Creates a service with the given autosave interval in milliseconds.
+     */
+    public SaveService(long autosaveMillis) {
+        this.autosaveMillis = autosaveMillis;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "save-service");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Saves the game in the binary format. The snapshot is taken before
+     * returning; the future completes when the file has been replaced.
+     */
+    public CompletableFuture<Void> save(GameState state, File file) {
+        Snapshot snapshot = state.snapshot();
+        return submit(() -> {
+            GamePersistence.writeAtomically(file, GamePersistence.toBytes(snapshot.toGameState()));
+            return null;
+        });
+    }
+
+    /**
+     * Loads a game (text or binary format) in the background.
+     */
+    public CompletableFuture<GameState> load(File file) {
+        return submit(() -> GamePersistence.loadFromText(file));
+    }
+
+    /**
+     * Runs any persistence task on the background thread, after all earlier requests.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        long requested = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                record(requested);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Starts journalling a game, replacing any journal this service had open.
+     */
+    public void startJournal(File file, GameState state) {
+        Snapshot snapshot = state.snapshot();
+        pending.set(null);
+        executor.execute(() -> {
+            closeJournalNow();
+            try {
+                journal = MoveJournal.open(file, snapshot.toGameState(), false);
+            } catch (IOException e) {
+                System.err.println("Autosave disabled: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Requests that the journal catch up with the game. Cheap enough to call
+     * after every move: bursts of calls are coalesced into one journal update.
+     */
+    public void autosave(GameState state) {
+        autosaveRequests.increment();
+        Pending next = new Pending(state.snapshot(), System.nanoTime(), 1);
+        Pending previous = pending.getAndUpdate(p -> p == null ? next
+                : new Pending(next.snapshot, p.requested, p.changes + 1));
+        if (previous != null) return;                // a write is already scheduled
+        if (autosaveMillis > 0) {
+            executor.schedule(this::flushAutosave, autosaveMillis, TimeUnit.MILLISECONDS);
+        } else {
+            executor.execute(this::flushAutosave);
+        }
+    }
+
+    /**
+     * Rewrites the journal as a snapshot of the game, dropping any pending
+     * autosave. Use this when the whole position was replaced (new game,
+     * load) rather than changed by moves and undos.
+     */
+    public void compactJournal(GameState state) {
+        Snapshot snapshot = state.snapshot();
+        pending.set(null);
+        executor.execute(() -> {
+            if (journal == null) return;
+            try {
+                journal.compact(snapshot.toGameState());
+            } catch (IOException e) {
+                System.err.println("Autosave disabled: " + e.getMessage());
+                closeJournalNow();
+            }
+        });
+    }
+
+    /**
+     * Writes any pending autosave and closes the journal.
+     */
+    public void stopJournal() {
+        executor.execute(() -> {
+            flushAutosave();
+            closeJournalNow();
+        });
+    }
+
+    private void flushAutosave() {
+        Pending p = pending.getAndSet(null);
+        if (p == null || journal == null) return;
+        try {
+            if (p.changes == 1) {
+                journal.update(p.snapshot.toGameState());
+            } else {
+                journal.compact(p.snapshot.toGameState());
+            }
+            autosaveWrites.increment();
+        } catch (IOException e) {
+            System.err.println("Autosave disabled: " + e.getMessage());
+            closeJournalNow();
+        } finally {
+            record(p.requested);
+        }
+    }
+
+    private void closeJournalNow() {
+        try {
+            if (journal != null) journal.close();
+        } catch (IOException e) {
+            System.err.println("Closing autosave failed: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    private void record(long requested) {
+        long nanos = System.nanoTime() - requested;
+        completed.increment();
+        latencyNanos.add(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Number of requests waiting for the background thread, including a scheduled autosave.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Mean time from request to completion of saves, loads and autosaves, in milliseconds.
+     */
+    public double getAverageLatencyMillis() {
+        long n = completed.sum();
+        return n == 0 ? 0 : latencyNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * Longest time from request to completion, in milliseconds.
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    /**
+     * Number of autosave requests and of journal updates they caused.
+     */
+    public long getAutosaveRequests() {
+        return autosaveRequests.sum();
+    }
+
+    public long getAutosaveWrites() {
+        return autosaveWrites.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, latency avg %.2f ms max %.2f ms, queue %d, autosave %d writes for %d changes",
+                completed.sum(), getAverageLatencyMillis(), getMaxLatencyMillis(), getQueueDepth(),
+                getAutosaveWrites(), getAutosaveRequests());
+    }
+
+    /**
+     * Writes any pending autosave, closes the journal and waits for all
+     * queued requests to finish.
+     */
+    @Override
+    public void close() {
+        stopJournal();
+        executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
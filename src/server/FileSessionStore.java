@@ -0,0 +1,76 @@
+package server;
+
+import model.GameState;
+import persistence.GamePersistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps evicted games as binary save files, one per session, in a directory.
+ * Files are replaced atomically, so a crash leaves every game either at its
+ * previous or at its new state.
+ */
+public class FileSessionStore implements SessionStore {
+    private static final String SUFFIX = ".uttb";
+
+    private final File directory;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Uses (and creates if needed) the given directory; games already in it are kept.
+     */
+    public FileSessionStore(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        this.directory = directory;
+        String[] existing = directory.list((dir, name) -> name.endsWith(SUFFIX));
+        if (existing != null) {
+            size.set(existing.length);
+            for (String name : existing) {
+                try {
+                    lastId.accumulateAndGet(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), Math::max);
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+    }
+
+    private File file(long id) {
+        return new File(directory, id + SUFFIX);
+    }
+
+    @Override
+    public void save(long id, GameState state) throws IOException {
+        File file = file(id);
+        boolean existed = file.exists();
+        GamePersistence.saveAsBinary(state, file);
+        if (!existed) size.incrementAndGet();
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public GameState load(long id) throws IOException {
+        File file = file(id);
+        return file.exists() ? GamePersistence.loadFromBinary(file) : null;
+    }
+
+    @Override
+    public void delete(long id) throws IOException {
+        if (Files.deleteIfExists(file(id).toPath())) size.decrementAndGet();
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public long lastId() {
+        return lastId.get();
+    }
+}
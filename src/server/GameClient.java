@@ -0,0 +1,144 @@
+package server;
+
+import model.GameState;
+import model.Player;
+import persistence.GamePersistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking client for GameServer. Requests are buffered until flush(), so
+ * several moves can be pipelined in one write; read() returns the server's
+ * messages one at a time and is meant to be called from a single thread.
+ */
+public class GameClient implements Closeable {
+    private static final int BUFFER = 512;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /** Kinds of server messages; see Protocol. */
+    public enum Kind { MOVE, GAME, STATE, ILLEGAL, RESTARTED, ERROR }
+
+    /**
+     * One server message. Only the fields of its kind are set: player and
+     * move for MOVE and ILLEGAL, gameId and player (NONE = both sides, null
+     * = spectator) for GAME, state for STATE, message for ERROR.
+     */
+    public record Event(Kind kind, Player player, int move, long gameId, GameState state, String message) {
+    }
+
+    private GameClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER));
+    }
+
+    /**
+     * Connects to a server.
+     */
+    public static GameClient connect(String host, int port) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), 10_000);
+            return new GameClient(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Requests a new game; with solo set this connection plays both sides.
+     */
+    public void create(boolean solo) throws IOException {
+        out.write(Protocol.CREATE);
+        out.write(solo ? Protocol.SOLO : 0);
+    }
+
+    public void join(long gameId) throws IOException {
+        out.write(Protocol.JOIN);
+        out.writeLong(gameId);
+    }
+
+    /**
+     * Asks to follow a game as a spectator.
+     */
+    public void watch(long gameId) throws IOException {
+        out.write(Protocol.WATCH);
+        out.writeLong(gameId);
+    }
+
+    /**
+     * Queues an encoded move (see Move.encode).
+     */
+    public void move(int move) throws IOException {
+        out.write(move);
+    }
+
+    public void sync() throws IOException {
+        out.write(Protocol.SYNC);
+    }
+
+    public void restart() throws IOException {
+        out.write(Protocol.RESTART);
+    }
+
+    /**
+     * Sends everything queued since the last flush in one write.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Blocks until the next server message arrives.
+     */
+    public Event read() throws IOException {
+        int type = in.readUnsignedByte();
+        if (Protocol.isMove(type)) {
+            Player p = (type & Protocol.O_MOVE) != 0 ? Player.O : Player.X;
+            return new Event(Kind.MOVE, p, type & ~Protocol.O_MOVE, -1, null, null);
+        }
+        return switch (type) {
+            case Protocol.GAME -> {
+                long id = in.readLong();
+                int side = in.readUnsignedByte();
+                Player p = switch (side) {
+                    case Protocol.SIDE_X -> Player.X;
+                    case Protocol.SIDE_O -> Player.O;
+                    case Protocol.SIDE_WATCH -> null;
+                    default -> Player.NONE;
+                };
+                yield new Event(Kind.GAME, p, -1, id, null, null);
+            }
+            case Protocol.STATE -> new Event(Kind.STATE, null, -1, -1, GamePersistence.fromBytes(payload()), null);
+            case Protocol.ILLEGAL -> new Event(Kind.ILLEGAL, null, in.readUnsignedByte(), -1, null, null);
+            case Protocol.RESTARTED -> new Event(Kind.RESTARTED, null, -1, -1, null, null);
+            case Protocol.ERROR -> new Event(Kind.ERROR, null, -1, -1, null,
+                    new String(payload(), StandardCharsets.UTF_8));
+            default -> throw new IOException("unexpected message " + type);
+        };
+    }
+
+    private byte[] payload() throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,497 @@
+package server;
+
+import model.GameState;
+import model.MoveEventRing;
+import model.Player;
+import persistence.GamePersistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TCP game server speaking the Protocol, with one virtual thread per
+ * connection: blocking reads keep the code simple while tens of thousands of
+ * idle connections cost only their small buffers. Games live in a
+ * SessionManager, so rules checks and moves are serialised per game and idle
+ * games are evicted like any other session.
+ *
+ * Replies are buffered and flushed once the connection has no more pipelined
+ * requests waiting, so a burst of moves costs one write. Moves are pushed to
+ * the other player as soon as they are played.
+ *
+ * Spectators never slow a game down: a watched game publishes its moves into
+ * a MoveEventRing and every spectator drains it on its own virtual thread,
+ * writing a batch of moves at a time. A spectator that falls a whole ring
+ * behind is sent the current position instead of the moves it missed.
+ */
+public class GameServer implements Closeable {
+    private static final int BUFFER = 512;          // per direction and connection
+    private static final int RING = 256;            // events kept for a watched game's spectators
+    private static final int BATCH = 64;            // events per spectator write
+
+    private final SessionManager sessions;
+    private final ServerSocket listener;
+    private final ConcurrentHashMap<Long, Table> tables = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final AtomicInteger spectators = new AtomicInteger();
+    private final LongAdder resyncs = new LongAdder();
+    private volatile boolean closed;
+
+    /** The players seated at one game and its spectators. */
+    private static final class Table {
+        final boolean solo;
+        volatile Connection x;
+        volatile Connection o;
+        final Set<Connection> watchers = ConcurrentHashMap.newKeySet();
+
+        Table(boolean solo) {
+            this.solo = solo;
+        }
+    }
+
+    /** One client connection; writes may come from other connections' threads. */
+    private final class Connection {
+        final Socket socket;
+        final OutputStream out;
+        final ReentrantLock writeLock = new ReentrantLock();
+        long gameId = -1;
+        int side;                                    // Protocol.SIDE_*
+        Spectator spectator;                         // set while watching a game
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER);
+        }
+
+        void send(int b) {
+            writeLock.lock();
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                closeQuietly();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void send(int type, byte[] payload) {
+            writeLock.lock();
+            try {
+                out.write(type);
+                out.write(payload.length >>> 8);
+                out.write(payload.length);
+                out.write(payload);
+            } catch (IOException e) {
+                closeQuietly();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void sendGame(long id, int side) {
+            writeLock.lock();
+            try {
+                out.write(Protocol.GAME);
+                for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (id >>> shift));
+                out.write(side);
+            } catch (IOException e) {
+                closeQuietly();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void flush() {
+            writeLock.lock();
+            try {
+                out.flush();
+                flushes.increment();
+            } catch (IOException e) {
+                closeQuietly();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * Forwards a watched game's events to one spectator connection.
+     */
+    private final class Spectator implements MoveEventRing.Handler {
+        final Connection c;
+        final long gameId;
+        final MoveEventRing ring;
+        final MoveEventRing.Consumer consumer;
+        volatile boolean resync;                     // send the position before any more moves
+
+        Spectator(Connection c, long gameId, MoveEventRing ring) {
+            this.c = c;
+            this.gameId = gameId;
+            this.ring = ring;
+            this.consumer = ring.subscribe(MoveEventRing.Policy.DROP);
+        }
+
+        @Override
+        public void onEvent(long sequence, long event, boolean endOfBatch) {
+            switch (MoveEventRing.kind(event)) {
+                case MoveEventRing.MOVE -> c.send(MoveEventRing.packed(event));
+                case MoveEventRing.RESET -> c.send(Protocol.RESTARTED);
+                default -> resync = true;            // an undo or load: send the position instead
+            }
+        }
+
+        void run() {
+            long dropped = 0;
+            try {
+                while (!consumer.isClosed()) {
+                    // A short timeout so SYNC requests are answered even in a quiet game
+                    if (consumer.await(100, TimeUnit.MILLISECONDS)) consumer.poll(this, BATCH);
+                    if (resync || consumer.getDropped() != dropped) {
+                        resync = false;
+                        dropped = consumer.getDropped();
+                        resyncs.increment();
+                        // The publisher is idle while we hold the game, so the snapshot and seek line up
+                        sessions.withGame(gameId, state -> {
+                            consumer.seek(ring.getCursor());
+                            return sendState(c, state);
+                        });
+                    }
+                    c.flush();
+                }
+            } catch (InterruptedException | NoSuchElementException e) {
+                c.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Binds the server to a port (0 picks a free one); call start() to accept clients.
+     */
+    public GameServer(SessionManager sessions, int port) throws IOException {
+        this.sessions = sessions;
+        this.listener = new ServerSocket();
+        listener.setReuseAddress(true);
+        listener.bind(new InetSocketAddress(port), 4096);
+    }
+
+    public int getPort() {
+        return listener.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections on a virtual thread.
+     */
+    public void start() {
+        Thread.ofVirtual().name("game-server-accept").start(() -> {
+            while (!closed) {
+                try {
+                    Socket socket = listener.accept();
+                    accepted.increment();
+                    Thread.ofVirtual().start(() -> serve(socket));
+                } catch (IOException e) {
+                    if (!closed) System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void serve(Socket socket) {
+        connections.incrementAndGet();
+        Connection c = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            c = new Connection(socket);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER));
+            int request;
+            while ((request = in.read()) >= 0) {
+                requests.increment();
+                handle(c, request, in);
+                if (in.available() == 0) c.flush();   // no more pipelined requests: send the replies
+            }
+        } catch (EOFException | SocketException e) {
+            // client went away
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+        } finally {
+            connections.decrementAndGet();
+            if (c != null) leave(c);
+        }
+    }
+
+    private void handle(Connection c, int request, DataInputStream in) throws IOException {
+        if (request < 81) {
+            play(c, request);
+            return;
+        }
+        switch (request) {
+            case Protocol.CREATE -> create(c, (in.readUnsignedByte() & Protocol.SOLO) != 0);
+            case Protocol.JOIN -> join(c, in.readLong());
+            case Protocol.WATCH -> watch(c, in.readLong());
+            case Protocol.SYNC -> {
+                if (c.spectator != null) {
+                    c.spectator.resync = true;      // answered in order by the spectator's thread
+                } else if (requireGame(c)) {
+                    sessions.withGame(c.gameId, state -> sendState(c, state));
+                }
+            }
+            case Protocol.RESTART -> restart(c);
+            default -> {
+                error(c, "unknown request " + request);
+                c.flush();
+                c.closeQuietly();
+            }
+        }
+    }
+
+    private void create(Connection c, boolean solo) {
+        leave(c);
+        long id = sessions.create();
+        Table table = new Table(solo);
+        table.x = c;
+        tables.put(id, table);
+        c.gameId = id;
+        c.side = solo ? Protocol.SIDE_BOTH : Protocol.SIDE_X;
+        sessions.withGame(id, state -> {
+            c.sendGame(id, c.side);
+            return sendState(c, state);
+        });
+    }
+
+    private void join(Connection c, long id) {
+        Table table = tables.get(id);
+        if (table == null || table.solo) {
+            error(c, table == null ? "no game " + id : "game " + id + " is not open to other players");
+            return;
+        }
+        leave(c);
+        try {
+            // Seat and snapshot under the game lock, so no move falls between them
+            String failure = sessions.withGame(id, state -> {
+                synchronized (table) {
+                    if (table.o == null || table.o.socket.isClosed()) {
+                        table.o = c;
+                        c.side = Protocol.SIDE_O;
+                    } else if (table.x == null || table.x.socket.isClosed()) {
+                        table.x = c;
+                        c.side = Protocol.SIDE_X;
+                    } else {
+                        return "game " + id + " is full";
+                    }
+                }
+                c.gameId = id;
+                c.sendGame(id, c.side);
+                sendState(c, state);
+                return null;
+            });
+            if (failure != null) error(c, failure);
+        } catch (NoSuchElementException e) {
+            error(c, "no game " + id);
+        }
+    }
+
+    /**
+     * Starts following a game. The consumer is subscribed while the game is
+     * locked, so the spectator gets exactly the moves after its snapshot.
+     */
+    private void watch(Connection c, long id) {
+        Table table = tables.get(id);
+        if (table == null) {
+            error(c, "no game " + id);
+            return;
+        }
+        leave(c);
+        try {
+            MoveEventRing ring = sessions.events(id, RING);
+            Spectator spectator = sessions.withGame(id, state -> {
+                Spectator sub = new Spectator(c, id, ring);
+                c.sendGame(id, Protocol.SIDE_WATCH);
+                sendState(c, state);
+                return sub;
+            });
+            c.gameId = id;
+            c.side = Protocol.SIDE_WATCH;
+            c.spectator = spectator;
+            table.watchers.add(c);
+            spectators.incrementAndGet();
+            if (tables.get(id) != table) c.closeQuietly();   // the players left meanwhile
+            Thread.ofVirtual().name("game-spectator-" + id).start(spectator::run);
+        } catch (NoSuchElementException e) {
+            error(c, "no game " + id);
+        }
+    }
+
+    private void play(Connection c, int move) {
+        if (!requireGame(c)) return;
+        if (c.spectator != null) {
+            c.send(Protocol.ILLEGAL);
+            c.send(move);
+            return;
+        }
+        Table table = tables.get(c.gameId);
+        Player side = c.side == Protocol.SIDE_X ? Player.X : (c.side == Protocol.SIDE_O ? Player.O : Player.NONE);
+        // The peer is read under the game lock, like join seats it, so a player
+        // joining mid-move gets either this move or a snapshot that has it
+        Connection[] peer = new Connection[1];
+        boolean legal = sessions.play(c.gameId, move, side, mover -> {
+            int played = mover == Player.O ? move | Protocol.O_MOVE : move;
+            c.send(played);
+            if (table != null && !table.solo) {
+                peer[0] = c == table.x ? table.o : table.x;
+                if (peer[0] != null) peer[0].send(played);
+            }
+        });
+        if (!legal) {
+            c.send(Protocol.ILLEGAL);
+            c.send(move);
+        } else if (peer[0] != null) {
+            peer[0].flush();
+        }
+    }
+
+    private void restart(Connection c) {
+        Table table = tables.get(c.gameId);
+        if (table == null || !requireGame(c)) return;
+        if (c.spectator != null) {
+            error(c, "spectators cannot restart a game");
+            return;
+        }
+        Connection other = sessions.withGame(c.gameId, state -> {
+            if (!table.solo && !state.isGameOver() && !state.isDraw() && state.getMoveLog().size() > 0) {
+                error(c, "the game is still in progress");
+                return null;
+            }
+            state.reset();
+            c.send(Protocol.RESTARTED);
+            Connection peer = c == table.x ? table.o : table.x;
+            if (peer != null && peer != c) peer.send(Protocol.RESTARTED);
+            return peer;
+        });
+        if (other != null && other != c) other.flush();
+    }
+
+    private boolean requireGame(Connection c) {
+        if (c.gameId >= 0 && tables.containsKey(c.gameId)) return true;
+        error(c, "create or join a game first");
+        return false;
+    }
+
+    private Void sendState(Connection c, GameState state) {
+        c.send(Protocol.STATE, GamePersistence.toBytes(state));
+        return null;
+    }
+
+    private void error(Connection c, String message) {
+        c.send(Protocol.ERROR, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Frees the connection's seat; the game ends once nobody is seated and
+     * its spectators are disconnected.
+     */
+    private void leave(Connection c) {
+        long id = c.gameId;
+        if (id < 0) return;
+        c.gameId = -1;
+        Table table = tables.get(id);
+        if (c.spectator != null) {
+            c.spectator.consumer.close();
+            c.spectator = null;
+            spectators.decrementAndGet();
+            if (table != null) table.watchers.remove(c);
+            return;
+        }
+        if (table == null) return;
+        boolean empty;
+        synchronized (table) {
+            if (table.x == c) table.x = null;
+            if (table.o == c) table.o = null;
+            empty = table.x == null && table.o == null;
+        }
+        if (empty && tables.remove(id, table)) {
+            sessions.end(id);
+            for (Connection watcher : table.watchers) {
+                error(watcher, "the players left game " + id);
+                watcher.flush();
+                watcher.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Number of open connections.
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    @Override
+    public String toString() {
+        long f = Math.max(1, flushes.sum());
+        return String.format("%,d connections (%,d accepted), %,d games, %,d spectators (%,d resyncs), "
+                        + "%,d requests, %.1f requests per write",
+                connections.get(), accepted.sum(), tables.size(), spectators.get(), resyncs.sum(),
+                requests.sum(), requests.sum() / (double) f);
+    }
+
+    /**
+     * Stops accepting connections. Open connections end when their clients disconnect.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        listener.close();
+    }
+
+    /**
+     * Runs a server until killed, printing its metrics every 5 seconds.
+     *
+     * Usage: java server.GameServer [--port N] [--idle MS]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = Protocol.DEFAULT_PORT;
+        long idle = 60_000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--idle" -> idle = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        SessionManager sessions = new SessionManager(new MemorySessionStore(), idle);
+        GameServer server = new GameServer(sessions, port);
+        server.start();
+        System.out.println("Listening on port " + server.getPort());
+        while (true) {
+            Thread.sleep(5000);
+            System.out.println(server + "; " + sessions.metrics());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds for percentile metrics.
+ * Values below 16 ns get a bucket each; above that every power of two is
+ * split into 8 buckets, so a reported percentile is within 12.5% of the
+ * true value while the whole histogram is under 500 counters.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR = 16;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one duration; negative values count as 0.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    /**
+     * Moves all counts into a new histogram and clears this one, so metrics
+     * can be reported per interval while recording goes on.
+     */
+    public LatencyHistogram drain() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = counts.getAndSet(i, 0);
+            if (n != 0) copy.counts.set(i, n);
+        }
+        return copy;
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile
+     * (0-100) in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long percentile(double percent) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percent / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private static int bucket(long value) {
+        if (value < LINEAR) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);          // >= 4
+        int sub = (int) (value >>> (exp - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exp - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int exp = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (exp - 3);
+        return (SUB_BUCKETS + sub) * width + width - 1;
+    }
+}
@@ -0,0 +1,289 @@
+package server;
+
+import model.GameState;
+import model.Move;
+import model.Player;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for GameServer over real TCP connections, one virtual thread
+ * per connection, playing random legal moves. Prints connected clients,
+ * moves per second and round-trip latency percentiles every second.
+ *
+ * In solo mode every connection plays both sides of its own game and sends
+ * its moves in pipelined batches; the latency is from sending a batch to
+ * receiving the last echo. In pairs mode two connections play each other
+ * one move at a time, so every move is also pushed to the opponent. With
+ * --watchers, every game also gets that many spectator connections, and the
+ * moves delivered to them and their resyncs are reported too.
+ *
+ * Usage: java server.LoadGenerator [options]
+ *   --host H          server to test (default: start one in this JVM)
+ *   --port N          server port (default 7777)
+ *   --connections N   client connections (default 1000)
+ *   --seconds N       duration after all clients connected (default 10)
+ *   --pipeline N      moves per write in solo mode (default 4)
+ *   --pairs           two connections per game instead of solo games
+ *   --watchers N      spectators per game (default 0)
+ */
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final int pipeline;
+    private final AtomicInteger connected = new AtomicInteger();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder spectated = new LongAdder();
+    private final LongAdder resynced = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile boolean stopping;
+
+    public LoadGenerator(String host, int port, int pipeline) {
+        this.host = host;
+        this.port = port;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Plays solo games on one connection until stopped.
+     */
+    private void solo(GameClient client, CompletableFuture<Long> gameId) throws IOException {
+        client.create(true);
+        client.flush();
+        gameId.complete(expect(client, GameClient.Kind.GAME).gameId());
+        GameState local = expect(client, GameClient.Kind.STATE).state();
+        connected.incrementAndGet();
+        int[] legal = new int[Move.COUNT];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!stopping) {
+            int batch = 0;
+            for (int n; batch < pipeline && (n = local.legalMoves(legal)) > 0; batch++) {
+                int move = legal[random.nextInt(n)];
+                local.makeMove(move);
+                client.move(move);
+            }
+            long start = System.nanoTime();
+            if (batch == 0) {
+                client.restart();
+                client.flush();
+                expect(client, GameClient.Kind.RESTARTED);
+                local.reset();
+                continue;
+            }
+            client.flush();
+            for (int i = 0; i < batch; i++) expect(client, GameClient.Kind.MOVE);
+            latency.record(System.nanoTime() - start);
+            moves.add(batch);
+        }
+    }
+
+    /**
+     * Plays one side of a game against another connection until stopped.
+     * X creates the game and passes its id to O.
+     */
+    private void pair(GameClient client, boolean x, CompletableFuture<Long> gameId) throws IOException {
+        if (x) {
+            client.create(false);
+        } else {
+            client.join(gameId.join());
+        }
+        client.flush();
+        GameClient.Event game = expect(client, GameClient.Kind.GAME);
+        if (x) gameId.complete(game.gameId());
+        GameState local = expect(client, GameClient.Kind.STATE).state();
+        connected.incrementAndGet();
+        Player side = game.player();
+        int[] legal = new int[Move.COUNT];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long sent = 0;
+        while (!stopping) {
+            if (sent == 0) {
+                int n = local.legalMoves(legal);
+                if (n == 0 && x) {
+                    client.restart();
+                    client.flush();
+                    sent = -1;                               // wait for RESTARTED
+                } else if (n > 0 && local.getCurrentPlayer() == side) {
+                    client.move(legal[random.nextInt(n)]);
+                    client.flush();
+                    sent = System.nanoTime();
+                }
+            }
+            GameClient.Event e = client.read();
+            switch (e.kind()) {
+                case MOVE -> {
+                    local.makeMove(e.move());
+                    if (e.player() == side && sent > 0) {
+                        latency.record(System.nanoTime() - sent);
+                        moves.increment();
+                        sent = 0;
+                    }
+                }
+                case RESTARTED -> {
+                    local.reset();
+                    sent = 0;
+                }
+                case ERROR -> throw new IOException(e.message());
+                default -> throw new IOException("unexpected " + e.kind());
+            }
+        }
+    }
+
+    /**
+     * Follows a game as a spectator until stopped.
+     */
+    private void watch(GameClient client, CompletableFuture<Long> gameId) throws IOException {
+        client.watch(gameId.join());
+        client.flush();
+        expect(client, GameClient.Kind.GAME);
+        expect(client, GameClient.Kind.STATE);
+        connected.incrementAndGet();
+        while (!stopping) {
+            GameClient.Event e = client.read();
+            switch (e.kind()) {
+                case MOVE -> spectated.increment();
+                case STATE -> resynced.increment();
+                case RESTARTED -> {
+                }
+                case ERROR -> throw new IOException(e.message());
+                default -> throw new IOException("unexpected " + e.kind());
+            }
+        }
+    }
+
+    private static GameClient.Event expect(GameClient client, GameClient.Kind kind) throws IOException {
+        GameClient.Event e = client.read();
+        if (e.kind() != kind) {
+            throw new IOException("expected " + kind + " but got " + e.kind()
+                    + (e.message() != null ? ": " + e.message() : ""));
+        }
+        return e;
+    }
+
+    /**
+     * Connects the clients, runs for the given time and prints the metrics.
+     */
+    public void run(int connections, int seconds, boolean pairs, int watchers) throws InterruptedException {
+        int games = pairs ? connections / 2 : connections;
+        int total = connections + games * watchers;
+        List<GameClient> clients = new ArrayList<>();
+        CountDownLatch finished = new CountDownLatch(total);
+        List<CompletableFuture<Long>> gameIds = new ArrayList<>();
+        CompletableFuture<Long> gameId = null;
+        for (int i = 0; i < total; i++) {
+            boolean player = i < connections;
+            // Players first: solo clients and pair X's create the games, which watchers then find by index
+            boolean x = player && (!pairs || i % 2 == 0);
+            if (x) gameId = new CompletableFuture<>();
+            CompletableFuture<Long> id = player ? gameId : gameIds.get((i - connections) % games);
+            if (x) gameIds.add(id);
+            Thread.ofVirtual().start(() -> {
+                try (GameClient client = GameClient.connect(host, port)) {
+                    synchronized (clients) {
+                        clients.add(client);
+                    }
+                    if (!player) {
+                        watch(client, id);
+                    } else if (pairs) {
+                        pair(client, x, id);
+                    } else {
+                        solo(client, id);
+                    }
+                } catch (IOException e) {
+                    if (!stopping) {
+                        failures.increment();
+                        if (failures.sum() <= 5) System.err.println("Client failed: " + e.getMessage());
+                    }
+                    if (x) id.completeExceptionally(e);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        long connectStart = System.nanoTime();
+        while (connected.get() + failures.sum() < total) {
+            Thread.sleep(100);
+        }
+        System.out.printf("%,d clients connected in %.1f s (%,d failed)%n", connected.get(),
+                (System.nanoTime() - connectStart) / 1e9, failures.sum());
+
+        long last = moves.sum();
+        long lastSpectated = spectated.sum();
+        for (int s = 0; s < seconds; s++) {
+            Thread.sleep(1000);
+            long played = moves.sum();
+            long seen = spectated.sum();
+            LatencyHistogram interval = latency.drain();
+            System.out.printf("%,d clients (%,d failed), %,d moves/s, round trip p50 %.2f ms p99 %.2f ms",
+                    connected.get(), failures.sum(), played - last,
+                    interval.percentile(50) / 1e6, interval.percentile(99) / 1e6);
+            if (watchers > 0) {
+                System.out.printf(", %,d spectator moves/s, %,d resyncs", seen - lastSpectated, resynced.sum());
+            }
+            System.out.println();
+            last = played;
+            lastSpectated = seen;
+        }
+        stopping = true;
+        synchronized (clients) {
+            for (GameClient client : clients) {
+                try {
+                    client.close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+            }
+        }
+        finished.await(10, TimeUnit.SECONDS);
+        System.out.printf("%,d moves in total, %,d failed clients%n", moves.sum(), failures.sum());
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = null;
+        int port = Protocol.DEFAULT_PORT;
+        int connections = 1000;
+        int seconds = 10;
+        int pipeline = 4;
+        int watchers = 0;
+        boolean pairs = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host" -> host = args[++i];
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--connections" -> connections = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--pipeline" -> pipeline = Integer.parseInt(args[++i]);
+                case "--pairs" -> pairs = true;
+                case "--watchers" -> watchers = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        if (pairs && connections % 2 != 0) {
+            throw new IllegalArgumentException("--pairs needs an even number of connections");
+        }
+        GameServer server = null;
+        if (host == null) {
+            server = new GameServer(new SessionManager(new MemorySessionStore(), 60_000), 0);
+            server.start();
+            host = "localhost";
+            port = server.getPort();
+        }
+        System.out.println((pairs ? "pairs" : "solo, pipeline " + pipeline) + ", " + connections
+                + " connections" + (watchers > 0 ? " and " + watchers + " watchers per game" : "")
+                + " to " + host + ":" + port);
+        new LoadGenerator(host, port, pipeline).run(connections, seconds, pairs, watchers);
+        if (server != null) {
+            System.out.println("server: " + server);
+            server.close();
+        }
+    }
+}
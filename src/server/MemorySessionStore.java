@@ -0,0 +1,46 @@
+package server;
+
+import model.GameState;
+import persistence.GamePersistence;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps evicted games in memory in the binary save format: about 120 bytes
+ * for a finished game instead of the ~650 bytes of a live GameState plus its
+ * session, so a host can park far more idle games than it could keep live.
+ */
+public class MemorySessionStore implements SessionStore {
+    private final Map<Long, byte[]> games = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Override
+    public void save(long id, GameState state) {
+        games.put(id, GamePersistence.toBytes(state));
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public GameState load(long id) throws IOException {
+        byte[] bytes = games.get(id);
+        return bytes == null ? null : GamePersistence.fromBytes(bytes);
+    }
+
+    @Override
+    public void delete(long id) {
+        games.remove(id);
+    }
+
+    @Override
+    public int size() {
+        return games.size();
+    }
+
+    @Override
+    public long lastId() {
+        return lastId.get();
+    }
+}
@@ -0,0 +1,62 @@
+package server;
+
+/**
+ * Wire protocol between GameServer and GameClient. Every message starts with
+ * one byte; a move is that byte alone, so a game's traffic is mostly single
+ * bytes. Numbers are big-endian. Clients may pipeline any number of requests
+ * without waiting for replies; the server answers in order and writes the
+ * replies to a burst of requests together.
+ *
+ * Client to server:
+ *   0-80            play the move sb*9+cell (see Move.encode)
+ *   CREATE flags    start a game and take X; flag SOLO = this connection plays both sides
+ *   JOIN id(8)      take the free side of a game (or a side whose player left)
+ *   WATCH id(8)     follow a game as a spectator
+ *   SYNC            ask for the current position
+ *   RESTART         start the game again (once it is over or before its first move, or at any time when solo)
+ *
+ * Server to client:
+ *   0-80, 128-208   a move was played: the move, plus 128 if O played it.
+ *                   Sent to every player and spectator of the game, the mover included.
+ *   GAME id(8) side you are in game id as X (0), O (1), both (2) or a spectator (3);
+ *                   a STATE follows
+ *   STATE n(2) n    the position in the GamePersistence binary format. Spectators
+ *                   also get one whenever they fell too far behind to follow the moves.
+ *   ILLEGAL move    your move was rejected (not your turn, or not legal)
+ *   RESTARTED       the game was restarted by one of its players
+ *   ERROR n(2) n    a request failed; UTF-8 message
+ */
+public final class Protocol {
+    public static final int DEFAULT_PORT = 7777;
+
+    // Client requests (moves are 0-80)
+    public static final int CREATE = 0xE0;
+    public static final int JOIN = 0xE1;
+    public static final int SYNC = 0xE2;
+    public static final int RESTART = 0xE3;
+    public static final int WATCH = 0xE4;
+    public static final int SOLO = 1;
+
+    // Server messages (moves are 0-80 and 128-208)
+    public static final int GAME = 0xF0;
+    public static final int STATE = 0xF1;
+    public static final int ILLEGAL = 0xF2;
+    public static final int RESTARTED = 0xF3;
+    public static final int ERROR = 0xF4;
+
+    public static final int O_MOVE = 0x80;            // added to a move played by O
+    public static final int SIDE_X = 0;
+    public static final int SIDE_O = 1;
+    public static final int SIDE_BOTH = 2;
+    public static final int SIDE_WATCH = 3;
+
+    private Protocol() {
+    }
+
+    /**
+     * Returns true if a server message byte announces a played move.
+     */
+    public static boolean isMove(int b) {
+        return (b & ~O_MOVE) < 81;
+    }
+}
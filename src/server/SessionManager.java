@@ -0,0 +1,383 @@
+package server;
+
+import model.GameState;
+import model.Move;
+import model.MoveEventRing;
+import model.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Hosts many concurrent games in one JVM for a headless server.
+ *
+ * GameState is not thread-safe, so every session has its own lock and all
+ * access to a game goes through play or withGame while holding it: requests
+ * for the same game are serialised, requests for different games never
+ * contend. The locks are ReentrantLocks rather than monitors so that virtual
+ * threads blocked on a busy game release their carrier thread.
+ *
+ * Sessions idle for longer than the idle timeout are written to a
+ * SessionStore and dropped from memory by a background evictor; the next
+ * request for one loads it back transparently: the loading thread puts a
+ * locked placeholder in the map and reads the store outside any map lock,
+ * so other requests for that game wait on its session lock and requests
+ * for other games are not held up by the read. metrics() reports live and
+ * stored sessions, moves per second and move latency percentiles.
+ *
+ * events(id) attaches a MoveEventRing to a game; the ring outlives
+ * eviction, so its consumers keep following the game when it is reloaded.
+ */
+public class SessionManager implements AutoCloseable {
+    private final ConcurrentHashMap<Long, Session> live = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, MoveEventRing> rings = new ConcurrentHashMap<>();
+    private final SessionStore store;
+    private final long idleNanos;
+    private final ScheduledExecutorService evictor;
+    private final AtomicLong nextId;
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rehydrations = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long lastMetricsNanos = System.nanoTime();
+    private long lastMetricsMoves;
+
+    /** One live game and the lock that serialises access to it. */
+    private static final class Session {
+        final long id;
+        GameState state;                                 // guarded by lock: null until loaded
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long lastUsed = System.nanoTime();
+        boolean evicted;                                 // guarded by lock: this object is stale
+
+        Session(long id, GameState state) {
+            this.id = id;
+            this.state = state;
+        }
+    }
+
+    /**
+     * Per-interval view of the host; rates and percentiles cover the time
+     * since the previous call to metrics().
+     */
+    public record Metrics(int liveSessions, int storedSessions, long totalMoves, double movesPerSecond,
+                          double p50Micros, double p99Micros, long evictions, long rehydrations) {
+        @Override
+        public String toString() {
+            return String.format("%,d live, %,d stored, %,d moves (%,.0f/s), latency p50 %.1f us p99 %.1f us, "
+                            + "%,d evicted, %,d rehydrated",
+                    liveSessions, storedSessions, totalMoves, movesPerSecond, p50Micros, p99Micros,
+                    evictions, rehydrations);
+        }
+    }
+
+    /**
+     * Creates a manager that evicts sessions idle for idleMillis to the store,
+     * checking every idleMillis / 2. An idle time of 0 disables eviction.
+     * Games already in the store stay reachable under their ids.
+     */
+    public SessionManager(SessionStore store, long idleMillis) {
+        this.store = store;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.nextId = new AtomicLong(store.lastId() + 1);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        if (idleMillis > 0) {
+            long period = Math.max(1, idleMillis / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Starts a new game and returns its session id.
+     */
+    public long create() {
+        long id = nextId.getAndIncrement();
+        live.put(id, new Session(id, new GameState()));
+        return id;
+    }
+
+    /**
+     * Plays an encoded move (see Move.encode) for the side to move.
+     * Returns false if the move is illegal; throws NoSuchElementException
+     * if the session does not exist.
+     */
+    public boolean play(long id, int move) {
+        return play(id, move, Player.NONE, null);
+    }
+
+    /**
+     * Plays a move only if it is the given side's turn (NONE accepts either
+     * side). If the move is legal, onPlayed runs with the player who moved
+     * while the game is still locked, so callers can announce moves in the
+     * order they were played.
+     */
+    public boolean play(long id, int move, Player side, Consumer<Player> onPlayed) {
+        long start = System.nanoTime();
+        Session s = acquire(id);
+        try {
+            Player mover = s.state.getCurrentPlayer();
+            if ((side != Player.NONE && mover != side) || !s.state.makeMove(move)) return false;
+            moves.increment();
+            if (onPlayed != null) onPlayed.accept(mover);
+            return true;
+        } finally {
+            s.lock.unlock();
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs an action on a game while holding its lock and returns its result.
+     * The GameState must not be kept or used after the action returns.
+     * Throws NoSuchElementException if the session does not exist.
+     */
+    public <T> T withGame(long id, Function<GameState, T> action) {
+        Session s = acquire(id);
+        try {
+            return action.apply(s.state);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the game's event ring, attaching one of the given capacity if
+     * it has none yet. Subscribe inside withGame to line a consumer up with
+     * a snapshot of the game. Throws NoSuchElementException if the session
+     * does not exist.
+     */
+    public MoveEventRing events(long id, int capacity) {
+        Session s = acquire(id);
+        try {
+            MoveEventRing ring = rings.computeIfAbsent(id, key -> new MoveEventRing(capacity));
+            s.state.setEventRing(ring);
+            return ring;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * Ends a session, removing it from memory and from the store.
+     * Returns false if it did not exist.
+     */
+    public boolean end(long id) {
+        Session s;
+        try {
+            s = acquire(id);
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+        try {
+            store.delete(id);
+            s.evicted = true;
+            live.remove(id, s);
+            rings.remove(id);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * Locks the session's live object, loading it from the store if it was
+     * evicted. Retries if the session is evicted while waiting for the lock.
+     */
+    private Session acquire(long id) {
+        while (true) {
+            Session s = live.get(id);
+            if (s == null) s = rehydrate(id);
+            s.lock.lock();
+            if (!s.evicted) {
+                s.lastUsed = System.nanoTime();
+                return s;
+            }
+            s.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the live object for an evicted session, loading it unless
+     * another thread already is. The placeholder is locked before it is
+     * published, so nobody sees it before its state is loaded; if the load
+     * fails it is marked evicted and removed again.
+     */
+    private Session rehydrate(long id) {
+        Session placeholder = new Session(id, null);
+        placeholder.lock.lock();
+        try {
+            Session existing = live.putIfAbsent(id, placeholder);
+            if (existing != null) return existing;
+            GameState state;
+            try {
+                state = store.load(id);
+            } catch (IOException e) {
+                placeholder.evicted = true;
+                live.remove(id, placeholder);
+                throw new UncheckedIOException("cannot load session " + id, e);
+            }
+            if (state == null) {
+                placeholder.evicted = true;
+                live.remove(id, placeholder);
+                throw new NoSuchElementException("no session " + id);
+            }
+            rehydrations.increment();
+            state.setEventRing(rings.get(id));
+            placeholder.state = state;
+            return placeholder;
+        } finally {
+            placeholder.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every session idle for longer than the idle timeout to the store
+     * and drops it from memory. Sessions in use are skipped. Returns how many
+     * were evicted; runs periodically on the evictor thread.
+     */
+    public int evictIdle() {
+        return evictOlderThan(System.nanoTime() - idleNanos);
+    }
+
+    private int evictOlderThan(long cutoff) {
+        int count = 0;
+        for (Session s : live.values()) {
+            if (s.lastUsed - cutoff > 0 || !s.lock.tryLock()) continue;
+            try {
+                if (s.evicted || s.lastUsed - cutoff > 0) continue;
+                store.save(s.id, s.state);
+                s.evicted = true;
+                live.remove(s.id, s);
+                count++;
+            } catch (IOException e) {
+                System.err.println("Cannot evict session " + s.id + ": " + e.getMessage());
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        evictions.add(count);
+        return count;
+    }
+
+    /**
+     * Number of games currently held in memory.
+     */
+    public int getLiveSessions() {
+        return live.size();
+    }
+
+    /**
+     * Returns the metrics for the interval since the previous call.
+     */
+    public synchronized Metrics metrics() {
+        long now = System.nanoTime();
+        long total = moves.sum();
+        double seconds = Math.max(1e-9, (now - lastMetricsNanos) / 1e9);
+        double rate = (total - lastMetricsMoves) / seconds;
+        lastMetricsNanos = now;
+        lastMetricsMoves = total;
+        LatencyHistogram interval = latency.drain();
+        return new Metrics(live.size(), store.size(), total, rate,
+                interval.percentile(50) / 1e3, interval.percentile(99) / 1e3,
+                evictions.sum(), rehydrations.sum());
+    }
+
+    /**
+     * Stops the evictor and writes every live session to the store, so a
+     * new manager on the same store can pick the games up again.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        try {
+            evictor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        evictOlderThan(System.nanoTime() + 1);
+    }
+
+    /**
+     * Load test without a network: worker threads play random legal moves on
+     * random sessions (starting a new game in a session once it is over) and
+     * the metrics are printed every second.
+     *
+     * Usage: java server.SessionManager [options]
+     *   --sessions N  number of games (default 100000)
+     *   --threads N   worker threads (default: available processors)
+     *   --seconds N   duration (default 10)
+     *   --idle MS     eviction idle timeout (default 2000, 0 = never)
+     *   --store DIR   evict to files in DIR instead of memory
+     */
+    public static void main(String[] args) throws Exception {
+        int sessions = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int seconds = 10;
+        long idle = 2000;
+        String dir = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sessions" -> sessions = Integer.parseInt(args[i + 1]);
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "--seconds" -> seconds = Integer.parseInt(args[i + 1]);
+                case "--idle" -> idle = Long.parseLong(args[i + 1]);
+                case "--store" -> dir = args[i + 1];
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        SessionStore store = dir == null ? new MemorySessionStore() : new FileSessionStore(new File(dir));
+        try (SessionManager manager = new SessionManager(store, idle)) {
+            long[] ids = new long[sessions];
+            for (int i = 0; i < sessions; i++) ids[i] = manager.create();
+            System.out.println(sessions + " sessions, " + threads + " threads, " + seconds + " s");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                Thread worker = new Thread(() -> {
+                    int[] legal = new int[Move.COUNT];
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            long id = ids[random.nextInt(ids.length)];
+                            int move = manager.withGame(id, state -> {
+                                int n = state.legalMoves(legal);
+                                if (n == 0) state.reset();
+                                return n == 0 ? -1 : legal[random.nextInt(n)];
+                            });
+                            if (move >= 0) manager.play(id, move);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }, "session-load-" + t);
+                worker.setDaemon(true);
+                worker.start();
+            }
+            while (!done.await(1, TimeUnit.SECONDS)) {
+                System.out.println(manager.metrics());
+            }
+            System.out.println(manager.metrics());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package server;
+
+import model.GameState;
+
+import java.io.IOException;
+
+/**
+ * Where SessionManager keeps games that have been idle long enough to be
+ * evicted from memory. Implementations must be safe to call from several
+ * threads, but never see two calls for the same session at once.
+ */
+public interface SessionStore {
+    /**
+     * Stores a game, replacing any earlier copy of the same session.
+     */
+    void save(long id, GameState state) throws IOException;
+
+    /**
+     * Returns the stored game, or null if there is none.
+     */
+    GameState load(long id) throws IOException;
+
+    /**
+     * Forgets a session; does nothing if it was never stored.
+     */
+    void delete(long id) throws IOException;
+
+    /**
+     * Number of stored sessions.
+     */
+    int size();
+
+    /**
+     * Highest session id ever saved (0 if none), so a new manager on an
+     * existing store does not hand out the ids of stored games again.
+     */
+    long lastId();
+}
@@ -0,0 +1,215 @@
+package sim;
+
+import ai.AlphaBetaEngine;
+import ai.Engine;
+import ai.GreedyEngine;
+import ai.MctsEngine;
+import ai.RandomEngine;
+import model.GameState;
+import model.Player;
+import persistence.GameArchive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Headless self-play simulator: plays many games between two policies on all
+ * cores without touching Swing, and streams progress to standard output.
+ * Each worker thread owns its engines and reuses a single GameState.
+ *
+ * Usage: java sim.SelfPlay [options]
+ *   --games N     number of games (default 1000000)
+ *   --x POLICY    policy for X: random, greedy, mcts, alphabeta (default random)
+ *   --o POLICY    policy for O (default random)
+ *   --threads N   worker threads (default: available processors)
+ *   --think MS    time per move for mcts/alphabeta (default 10)
+ *   --seed N      base random seed (default 1)
+ *   --archive F   append every finished game to a GameArchive file
+ *   --ponder      engines ponder on the opponent's time; their ponder hit
+ *                 rates and reply times are printed at the end (use fewer
+ *                 threads than cores so pondering has a core to run on)
+ */
+public class SelfPlay {
+    private static final int BATCH = 256;   // games claimed per counter update
+
+    private final long games;
+    private final int threads;
+    private final LongFunction<Engine> xPolicy;
+    private final LongFunction<Engine> oPolicy;
+    private final long seed;
+    private GameArchive archive;            // null when games are not recorded
+    private boolean ponder;
+    private final List<String> ponderStats = new ArrayList<>();
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder xWins = new LongAdder();
+    private final LongAdder oWins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+
+    public SelfPlay(long games, int threads, LongFunction<Engine> xPolicy, LongFunction<Engine> oPolicy, long seed) {
+        this.games = games;
+        this.threads = threads;
+        this.xPolicy = xPolicy;
+        this.oPolicy = oPolicy;
+        this.seed = seed;
+    }
+
+    /**
+     * Records every finished game in the given archive.
+     */
+    public void setArchive(GameArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Lets each engine ponder while its opponent chooses a move.
+     */
+    public void setPonder(boolean ponder) {
+        this.ponder = ponder;
+    }
+
+    /**
+     * Builds a per-thread engine factory for a policy name; the argument is a seed.
+     */
+    public static LongFunction<Engine> policy(String name, long thinkMillis) {
+        return switch (name) {
+            case "random" -> RandomEngine::new;
+            case "greedy" -> GreedyEngine::new;
+            case "mcts" -> s -> new MctsEngine(1, thinkMillis, 0);
+            case "alphabeta" -> s -> new AlphaBetaEngine(thinkMillis, 0);
+            default -> throw new IllegalArgumentException("unknown policy: " + name);
+        };
+    }
+
+    /**
+     * Runs all games, printing a progress line every reportMillis.
+     */
+    public void run(long reportMillis) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long workerSeed = seed * 0x9E3779B97F4A7C15L + t;
+            Thread worker = new Thread(() -> {
+                Engine x = xPolicy.apply(workerSeed);
+                Engine o = oPolicy.apply(~workerSeed);
+                try {
+                    play(x, o);
+                } finally {
+                    if (ponder) {
+                        synchronized (ponderStats) {
+                            ponderStats.add(Thread.currentThread().getName() + " X: " + x.getPonderStats());
+                            ponderStats.add(Thread.currentThread().getName() + " O: " + o.getPonderStats());
+                        }
+                    }
+                    done.countDown();
+                }
+            }, "self-play-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        while (!done.await(reportMillis, TimeUnit.MILLISECONDS)) {
+            report(start);
+        }
+        report(start);
+        for (String stats : ponderStats) System.out.println(stats);
+    }
+
+    private void play(Engine x, Engine o) {
+        GameState state = new GameState();
+        byte[] record = new byte[81];
+        long first;
+        while ((first = claimed.getAndAdd(BATCH)) < games) {
+            long last = Math.min(games, first + BATCH);
+            long batchMoves = 0;
+            for (long g = first; g < last; g++) {
+                state.reset();
+                int length = 0;
+                while (true) {
+                    Engine engine = state.getCurrentPlayer() == Player.X ? x : o;
+                    int move = engine.chooseMove(state);
+                    if (move < 0) break;
+                    state.makeMove(move);
+                    record[length++] = (byte) move;
+                    if (ponder) engine.startPondering(state);
+                }
+                if (ponder) {
+                    x.stopPondering();
+                    o.stopPondering();
+                }
+                batchMoves += length;
+                Player winner = state.getGameWinner();
+                if (archive != null) {
+                    try {
+                        archive.append(record, length, winner);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                (winner == Player.X ? xWins : winner == Player.O ? oWins : draws).increment();
+            }
+            moves.add(batchMoves);
+            finished.add(last - first);
+        }
+    }
+
+    private void report(long start) {
+        long n = finished.sum();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double div = Math.max(1, n);
+        System.out.printf("%,d/%,d games  X %.2f%%  O %.2f%%  draw %.2f%%  avg length %.1f  %,.0f games/s%n",
+                n, games, xWins.sum() * 100 / div, oWins.sum() * 100 / div, draws.sum() * 100 / div,
+                moves.sum() / div, n / seconds);
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        long games = 1_000_000;
+        String x = "random";
+        String o = "random";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long think = 10;
+        long seed = 1;
+        String archiveFile = null;
+        boolean ponder = false;
+        for (int i = 0; i < args.length; i += 2) {
+            if (args[i].equals("--ponder")) {
+                ponder = true;
+                i--;                                 // a flag without a value
+                continue;
+            }
+            if (i + 1 >= args.length) break;
+            switch (args[i]) {
+                case "--games" -> games = Long.parseLong(args[i + 1]);
+                case "--x" -> x = args[i + 1];
+                case "--o" -> o = args[i + 1];
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "--think" -> think = Long.parseLong(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--archive" -> archiveFile = args[i + 1];
+                default -> throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        System.out.println(x + " (X) vs " + o + " (O), " + games + " games on " + threads + " threads");
+        SelfPlay selfPlay = new SelfPlay(games, threads, policy(x, think), policy(o, think), seed);
+        selfPlay.setPonder(ponder);
+        if (archiveFile == null) {
+            selfPlay.run(1000);
+            return;
+        }
+        try (GameArchive archive = GameArchive.open(new File(archiveFile))) {
+            selfPlay.setArchive(archive);
+            selfPlay.run(1000);
+            System.out.println(archive.size() + " games in " + archiveFile);
+        }
+    }
+}
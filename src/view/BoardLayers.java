@@ -0,0 +1,238 @@
+package view;
+
+import model.Player;
+import model.Snapshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Layered back buffer for GamePanel. The static board comes from the sprite
+ * cache; the highlight layer is the board already covered with the highlight
+ * paint; the marks of each sub-board live in a marks layer. The frame layer
+ * composes them: board, highlight for the legal cells, then marks, and
+ * painting the panel is a single blit of (the dirty part of) the frame.
+ *
+ * The layers remember what they show for each sub-board (its cells, winner
+ * and highlighted cells). sync() redraws only the sub-boards whose contents
+ * differ from the game, and repaintChanged() asks Swing to repaint only
+ * their rectangles, so a move costs the same whatever else is on the board.
+ * Layers are compatible images at device resolution, rebuilt when the
+ * board size or display scale changes. They read an immutable Snapshot of
+ * the game, so a paint never sees a move half made.
+ */
+class BoardLayers {
+    // Original board dimensions, used as reference for scaling
+    private static final int ORIGINAL_BOARD_W = 1025;
+    private static final int ORIGINAL_BOARD_H = 1025;
+    private static final int ORIGINAL_MARGIN = 17;
+    private static final Color CLEAR = new Color(0, 0, 0, 0);
+    private static final int MARKS = (1 << 20) - 1;     // key bits describing cells and winner
+
+    private final SpriteCache sprites;
+    private BufferedImage highlighted;           // board under the highlight paint
+    private BufferedImage marks;                 // committed X/O marks
+    private BufferedImage frame;                 // board + marks + highlights
+    private final int[] shown = new int[9];      // per sub-board: what the layers show (-1 = unknown)
+
+    // Geometry for the current panel size, in logical pixels
+    private int panelW = -1, panelH = -1;
+    private int boardX, boardY, boardW, boardH, margin, subGap;
+    private double cellW, cellH;
+    private double scaleX, scaleY;
+    private GraphicsConfiguration config;
+
+    BoardLayers(BufferedImage boardImg, BufferedImage xImg, BufferedImage oImg) {
+        this.sprites = new SpriteCache(boardImg, xImg, oImg);
+    }
+
+    /**
+     * Brings the layers up to date with the game and draws the frame.
+     */
+    void paint(Graphics2D g, Snapshot state, int width, int height) {
+        layout(width, height);
+        AffineTransform t = g.getTransform();
+        if (frame == null || t.getScaleX() != scaleX || t.getScaleY() != scaleY
+                || g.getDeviceConfiguration() != config) {
+            rebuild(g);
+        }
+        sync(state);
+        g.drawImage(frame, boardX, boardY, boardW, boardH, null);
+    }
+
+    /**
+     * Requests a repaint of the sub-boards whose contents no longer match the
+     * layers, or of the whole component if the layers do not exist yet.
+     */
+    void repaintChanged(JComponent component, Snapshot state) {
+        if (frame == null || component.getWidth() != panelW || component.getHeight() != panelH) {
+            component.repaint();
+            return;
+        }
+        for (int sb = 0; sb < 9; sb++) {
+            if (shown[sb] != key(state, sb)) {
+                component.repaint(boardX + subX(sb), boardY + subY(sb), subW(), subH());
+            }
+        }
+    }
+
+    /**
+     * Computes the board geometry for a panel size; a new size discards the layers.
+     */
+    private void layout(int width, int height) {
+        if (width == panelW && height == panelH) return;
+        panelW = width;
+        panelH = height;
+        double scale = Math.min(width / (double) ORIGINAL_BOARD_W, height / (double) ORIGINAL_BOARD_H);
+        boardW = Math.max(1, (int) (ORIGINAL_BOARD_W * scale));
+        boardH = Math.max(1, (int) (ORIGINAL_BOARD_H * scale));
+        boardX = (width - boardW) / 2;
+        boardY = (height - boardH) / 2;
+        margin = (int) (ORIGINAL_MARGIN * scale);
+        // Gap between sub-boards (3 wide, 2 gaps horizontally)
+        subGap = (int) (boardW * 0.03 / 2);
+        cellW = (boardW - 2 * margin - subGap * 2) / 9.0;
+        cellH = (boardH - 2 * margin - subGap * 2) / 9.0;
+        frame = null;
+    }
+
+    /**
+     * Allocates empty layers for the current size and device scale.
+     */
+    private void rebuild(Graphics2D g) {
+        AffineTransform t = g.getTransform();
+        scaleX = t.getScaleX();
+        scaleY = t.getScaleY();
+        config = g.getDeviceConfiguration();
+        sprites.validate(g, boardW, boardH, (int) cellW, (int) cellH, subW(), subH());
+        highlighted = layer();
+        Graphics2D hg = highlighted.createGraphics();
+        hg.drawImage(sprites.board(), 0, 0, null);
+        hg.setComposite(AlphaComposite.SrcAtop);
+        hg.setColor(SpriteCache.HIGHLIGHT);
+        hg.fillRect(0, 0, highlighted.getWidth(), highlighted.getHeight());
+        hg.dispose();
+        marks = layer();
+        frame = layer();
+        Graphics2D fg = frame.createGraphics();
+        fg.drawImage(sprites.board(), 0, 0, frame.getWidth(), frame.getHeight(), null);
+        fg.dispose();
+        Arrays.fill(shown, -1);
+    }
+
+    private BufferedImage layer() {
+        int w = Math.max(1, (int) Math.ceil(boardW * scaleX));
+        int h = Math.max(1, (int) Math.ceil(boardH * scaleY));
+        return SpriteCache.translucentImage(config, w, h);
+    }
+
+    /**
+     * Redraws the sub-boards that changed since the last sync.
+     */
+    private void sync(Snapshot state) {
+        for (int sb = 0; sb < 9; sb++) {
+            int key = key(state, sb);
+            if (key == shown[sb]) continue;
+            int before = shown[sb];
+            shown[sb] = key;
+            if (before == -1 || (before & MARKS) != (key & MARKS)) drawMarks(state, sb);
+            compose(state, sb);
+        }
+    }
+
+    /**
+     * Everything that decides how a sub-board looks: X cells, O cells, winner and highlights.
+     */
+    private static int key(Snapshot state, int sb) {
+        Player winner = state.getSubBoardWinner(sb);
+        return state.getCellMask(Player.X, sb)
+                | state.getCellMask(Player.O, sb) << 9
+                | (winner == Player.X ? 1 : winner == Player.O ? 2 : 0) << 18
+                | state.legalCellMask(sb) << 20;
+    }
+
+    private void drawMarks(Snapshot state, int sb) {
+        Graphics2D g = layerGraphics(marks, sb);
+        int x = subX(sb), y = subY(sb);
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(CLEAR);
+        g.fillRect(x, y, subW(), subH());
+        g.setComposite(AlphaComposite.SrcOver);
+        Player winner = state.getSubBoardWinner(sb);
+        if (winner != Player.NONE) {
+            // Draw a large X or O when sub-board is won
+            g.drawImage(sprites.subBoard(winner == Player.X), x, y, subW(), subH(), null);
+        } else {
+            // Draw individual cells
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    Player p = state.getCell(sb, r, c);
+                    if (p != Player.NONE) {
+                        g.drawImage(sprites.cell(p == Player.X), x + (int) (c * cellW), y + (int) (r * cellH),
+                                (int) cellW, (int) cellH, null);
+                    }
+                }
+            }
+        }
+        g.dispose();
+    }
+
+    /**
+     * Recomposes one sub-board of the frame from the board, marks and highlights.
+     */
+    private void compose(Snapshot state, int sb) {
+        Graphics2D g = layerGraphics(frame, sb);
+        int x = subX(sb), y = subY(sb);
+        g.setComposite(AlphaComposite.Src);
+        copyRegion(g, sprites.board(), x, y, subW(), subH());
+        // Highlight available moves in the active sub-board (plain copies, no blending)
+        for (int free = state.legalCellMask(sb); free != 0; free &= free - 1) {
+            int cell = Integer.numberOfTrailingZeros(free);
+            copyRegion(g, highlighted, x + (int) ((cell % 3) * cellW), y + (int) ((cell / 3) * cellH),
+                    (int) cellW, (int) cellH);
+        }
+        g.setComposite(AlphaComposite.SrcOver);
+        copyRegion(g, marks, x, y, subW(), subH());
+        g.dispose();
+    }
+
+    /**
+     * Draws one rectangle (in board coordinates) of a board-sized layer;
+     * copying only that region keeps the cost independent of the board.
+     */
+    private void copyRegion(Graphics2D g, Image image, int x, int y, int w, int h) {
+        double fx = image.getWidth(null) / (double) boardW;
+        double fy = image.getHeight(null) / (double) boardH;
+        g.drawImage(image, x, y, x + w, y + h,
+                (int) (x * fx), (int) (y * fy), (int) ((x + w) * fx), (int) ((y + h) * fy), null);
+    }
+
+    /**
+     * Graphics for a layer in logical board coordinates, clipped to one sub-board.
+     */
+    private Graphics2D layerGraphics(BufferedImage layer, int sb) {
+        Graphics2D g = layer.createGraphics();
+        g.scale(layer.getWidth() / (double) boardW, layer.getHeight() / (double) boardH);
+        g.clipRect(subX(sb), subY(sb), subW(), subH());
+        return g;
+    }
+
+    private int subX(int sb) {
+        return margin + sb % 3 * (subW() + subGap);
+    }
+
+    private int subY(int sb) {
+        return margin + sb / 3 * (subH() + subGap);
+    }
+
+    private int subW() {
+        return (int) (3 * cellW);
+    }
+
+    private int subH() {
+        return (int) (3 * cellH);
+    }
+}
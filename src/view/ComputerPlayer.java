@@ -0,0 +1,153 @@
+package view;
+
+import ai.Engine;
+import model.GameState;
+import model.Move;
+import model.Player;
+import model.Snapshot;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ComputerPlayer lets an Engine play one side of the game shown in a GamePanel.
+ * The engine searches a private copy of the state, rebuilt from a snapshot
+ * on a background thread, and the chosen move is applied back on the Event
+ * Dispatch Thread. While the human is to move the engine ponders the
+ * position, so its reply can reuse that search.
+ *
+ * Engine calls that may wait for the engine (searching, starting a ponder)
+ * run in order on one background thread; the EDT only ever calls stop().
+ */
+public class ComputerPlayer {
+    // One thread for all computer players, as they share the engine; it exits when idle
+    private static final ExecutorService ENGINE_THREAD = new ThreadPoolExecutor(0, 1, 5, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "computer-player");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private final Engine engine;
+    private final Player side;
+    private SwingWorker<Integer, Void> thinking;   // running search, if any
+    private boolean pondering = true;
+    private volatile long ponderedPosition;        // hash of the position being pondered, 0 if none
+
+    /**
+     * engine the engine choosing moves
+     * side   the player the computer plays
+     */
+    public ComputerPlayer(Engine engine, Player side) {
+        this.engine = engine;
+        this.side = side;
+    }
+
+    public Player getSide() {
+        return side;
+    }
+
+    /**
+     * Returns true while the engine is searching for a move.
+     */
+    public boolean isThinking() {
+        return thinking != null;
+    }
+
+    /**
+     * Turns pondering on the human's time on or off (on by default).
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+        if (!pondering) stopPondering();
+    }
+
+    /**
+     * Starts searching if it is the computer's turn, or pondering if it is
+     * the human's. Must be called on the EDT.
+     * The move is only played if the position is unchanged when the search ends
+     * (e.g. the game was not restarted or undone meanwhile).
+     */
+    public void takeTurn(GamePanel panel) {
+        GameState state = panel.getGameState();
+        if (thinking != null) return;
+        if (state.legalMoveCount() == 0) {
+            stopPondering();
+            return;
+        }
+        if (state.getCurrentPlayer() != side) {
+            ponder(state);
+            return;
+        }
+
+        Snapshot snapshot = state.snapshot();
+        long position = snapshot.getHash();
+        long start = System.nanoTime();
+        ponderedPosition = 0;                      // chooseMove takes over the ponder
+        thinking = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() {
+                if (isCancelled()) return -1;     // cancelled while queued behind a ponder
+                int move = engine.chooseMove(snapshot.toGameState());
+                Timing.report("computer move", start);
+                if (Timing.ENABLED) System.out.println("[timing] " + engine.getPonderStats());
+                return move;
+            }
+
+            @Override
+            protected void done() {
+                if (thinking != this) return; // cancelled
+                thinking = null;
+                try {
+                    int move = get();
+                    if (move >= 0 && state.getHash() == position) {
+                        int cell = Move.cellOf(move);
+                        panel.playMove(Move.subBoardOf(move), cell / 3, cell % 3);
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Computer move failed: " + e.getMessage());
+                }
+                takeTurn(panel); // position may have changed while searching
+            }
+        };
+        ENGINE_THREAD.execute(thinking);
+    }
+
+    /**
+     * Starts pondering the human's position unless it is already pondered.
+     * The ponder is skipped if the position was given up before the engine
+     * thread got to it.
+     */
+    private void ponder(GameState state) {
+        if (!pondering || state.getHash() == ponderedPosition) return;
+        Snapshot snapshot = state.snapshot();
+        long position = snapshot.getHash();
+        ponderedPosition = position;
+        ENGINE_THREAD.execute(() -> {
+            if (ponderedPosition == position) engine.startPondering(snapshot.toGameState());
+        });
+    }
+
+    private void stopPondering() {
+        if (ponderedPosition != 0) {
+            ponderedPosition = 0;
+            engine.stop();                         // the ponder ends without blocking the EDT
+        }
+    }
+
+    /**
+     * Stops any running search or ponder and discards its move.
+     */
+    public void cancel() {
+        stopPondering();
+        if (thinking != null) {
+            thinking.cancel(false);
+            thinking = null;
+            engine.stop();
+        }
+    }
+}
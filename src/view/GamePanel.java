@@ -15,10 +15,9 @@ import java.awt.image.BufferedImage;
  */
 public class GamePanel extends JPanel {
     private final GameState state;
-    private final BufferedImage boardImg;
-    private final BufferedImage xImg;
-    private final BufferedImage oImg;
+    private final BoardLayers layers;            // composed board, redrawn per changed sub-board
     private final Runnable onMoveMade;
+    private Player computerSide = Player.NONE;   // side whose moves are not taken from input
 
     // Original board dimensions, used as reference for scaling
     private final int ORIGINAL_BOARD_W = 1025;
@@ -39,9 +38,8 @@ public class GamePanel extends JPanel {
                      BufferedImage oImg,
                      Runnable onMoveMade) {
         this.state = state;
-        this.boardImg = boardImg;
-        this.xImg = xImg;
-        this.oImg = oImg;
+        state.publishSnapshots();   // painting reads snapshots, never the live state
+        this.layers = new BoardLayers(boardImg, xImg, oImg);
         this.onMoveMade = onMoveMade;
         setOpaque(false);
 
@@ -58,6 +56,8 @@ public class GamePanel extends JPanel {
      * determines sub-board and cell indices, and applies the move if valid.
      */
     private void handleMouseClick(int x, int y) {
+        if (state.getCurrentPlayer() == computerSide) return;
+
         // Determine scale factor based on panel size versus original image size
         double scale = Math.min(getWidth() / (double) ORIGINAL_BOARD_W,
                 getHeight() / (double) ORIGINAL_BOARD_H);
@@ -86,121 +86,69 @@ public class GamePanel extends JPanel {
         int c = col % 3;
 
         // Attempt the move
-        if (state.makeMove(subBoard, r, c)) {
-            repaint();            // Redraw board
-            onMoveMade.run();     // Notify history panel
+        playMove(subBoard, r, c);
+    }
 
-            // Check for game over: win or draw
-            if (state.getGameWinner() != Player.NONE) {
-                int answer = JOptionPane.showConfirmDialog(
-                        this,
-                        "Player " + state.getGameWinner() + " won! Restart?",
-                        "Game Over",
-                        JOptionPane.YES_NO_OPTION);
-                if (answer == JOptionPane.YES_OPTION) {
-                    state.reset();
-                    repaint();
-                } else {
-                    System.exit(0);
-                }
-            } else if (state.isDraw()) {
-                int answer = JOptionPane.showConfirmDialog(
-                        this,
-                        "It's a draw! Restart?",
-                        "Draw",
-                        JOptionPane.YES_NO_OPTION);
-                if (answer == JOptionPane.YES_OPTION) {
-                    state.reset();
-                    repaint();
-                } else {
-                    System.exit(0);
-                }
-            }
+    /**
+     * Applies a move for the current player, refreshes the view and handles
+     * the game-over dialogs. Returns true if the move was legal.
+     */
+    public boolean playMove(int subBoard, int r, int c) {
+        if (!state.makeMove(subBoard, r, c)) return false;
+        repaintChanged();     // Redraw the changed sub-boards
+        onMoveMade.run();     // Notify history panel
+
+        // Check for game over: win or draw
+        if (state.getGameWinner() != Player.NONE) {
+            offerRestart("Player " + state.getGameWinner() + " won! Restart?", "Game Over");
+        } else if (state.isDraw()) {
+            offerRestart("It's a draw! Restart?", "Draw");
+        }
+        return true;
+    }
+
+    /**
+     * Asks whether to play again; restarts the game or exits.
+     */
+    private void offerRestart(String message, String title) {
+        int answer = JOptionPane.showConfirmDialog(
+                this, message, title, JOptionPane.YES_NO_OPTION);
+        if (answer == JOptionPane.YES_OPTION) {
+            state.reset();
+            onMoveMade.run(); // update history
+            repaintChanged();
+        } else {
+            System.exit(0);
         }
     }
 
     /**
      * Paints the board, sub-boards, X/O marks, and highlights available moves.
-     * Dynamically scales all elements to fit the panel size.
+     * Dynamically scales all elements to fit the panel size. The layers keep
+     * the composed board between paints and redraw only sub-boards that changed.
+     * The board is drawn from the game's latest snapshot, so it stays
+     * consistent even if another thread is changing the game.
      */
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        layers.paint((Graphics2D) g, state.snapshot(), getWidth(), getHeight());
+    }
 
-        // Compute scaled dimensions and margins
-        double scale = Math.min(getWidth() / (double) ORIGINAL_BOARD_W,
-                getHeight() / (double) ORIGINAL_BOARD_H);
-        int boardW = (int) (ORIGINAL_BOARD_W * scale);
-        int boardH = (int) (ORIGINAL_BOARD_H * scale);
-        int boardX = (getWidth() - boardW) / 2;
-        int boardY = (getHeight() - boardH) / 2;
-        int margin = (int) (ORIGINAL_MARGIN * scale);
-
-        // Gap between sub-boards (3 wide, 2 gaps horizontally)
-        int subGap = (int) (boardW * 0.03 / 2);
-        double cellW = (boardW - 2 * margin - subGap * 2) / 9.0;
-        double cellH = (boardH - 2 * margin - subGap * 2) / 9.0;
-
-        // Draw the main board image
-        g.drawImage(boardImg, boardX, boardY, boardW, boardH, this);
-
-        int offsetX = boardX + margin;
-        int offsetY = boardY + margin;
-
-        // Loop through each sub-board
-        for (int sb = 0; sb < 9; sb++) {
-            int sbRow = sb / 3;
-            int sbCol = sb % 3;
-            int subX = offsetX + sbCol * ((int)(3 * cellW) + subGap);
-            int subY = offsetY + sbRow * ((int)(3 * cellH) + subGap);
-
-            Player winner = state.getSubBoardWinner(sb);
-            if (winner != Player.NONE) {
-                // Draw a large X or O when sub-board is won
-                BufferedImage img = (winner == Player.X ? xImg : oImg);
-                g.drawImage(img, subX, subY,
-                        (int)(3 * cellW), (int)(3 * cellH), this);
-            } else {
-                // Draw individual cells
-                for (int r = 0; r < 3; r++) {
-                    for (int c = 0; c < 3; c++) {
-                        Player p = state.getCell(sb, r, c);
-                        if (p != Player.NONE) {
-                            BufferedImage img = (p == Player.X ? xImg : oImg);
-                            int xPos = subX + (int)(c * cellW);
-                            int yPos = subY + (int)(r * cellH);
-                            g.drawImage(img, xPos, yPos,
-                                    (int)cellW, (int)cellH, this);
-                        }
-                    }
-                }
-            }
-        }
-
-        // Highlight available moves in the active sub-board(s)
-        int active = state.getNextActiveSubBoard();
-        for (int sb = 0; sb < 9; sb++) {
-            if (active == -1 || active == sb) {
-                if (state.getSubBoardWinner(sb) != Player.NONE) continue;
-
-                int sbRow = sb / 3;
-                int sbCol = sb % 3;
-                int subX = offsetX + sbCol * ((int)(3 * cellW) + subGap);
-                int subY = offsetY + sbRow * ((int)(3 * cellH) + subGap);
+    /**
+     * Repaints only the sub-boards that changed since the last paint:
+     * after a move, the played one and the old and new highlighted ones.
+     * Call this instead of repaint() after changing the game state.
+     */
+    public void repaintChanged() {
+        layers.repaintChanged(this, state.snapshot());
+    }
 
-                for (int r = 0; r < 3; r++) {
-                    for (int c = 0; c < 3; c++) {
-                        if (state.getCell(sb, r, c) == Player.NONE) {
-                            int xPos = subX + (int)(c * cellW);
-                            int yPos = subY + (int)(r * cellH);
-                            g.setColor(new Color(255, 255, 0, 100));
-                            g.fillRect(xPos, yPos,
-                                    (int)cellW, (int)cellH);
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Ignores mouse and keyboard moves while it is this player's turn.
+     */
+    public void setComputerSide(Player side) {
+        this.computerSide = side;
     }
 
     /**
@@ -215,14 +163,13 @@ public class GamePanel extends JPanel {
      * Useful for keyboard-driven input.
      */
     public void simulateMove(int cellIndex) {
-        if (state.getGameWinner() != Player.NONE) return;
+        if (state.getGameWinner() != Player.NONE || state.getCurrentPlayer() == computerSide) return;
 
         int sb = state.getNextActiveSubBoard();
         if (sb == -1) {
             // Find the first sub-board where this cell is free
             for (int i = 0; i < 9; i++) {
-                if (state.getSubBoardWinner(i) == Player.NONE &&
-                        state.getCell(i, cellIndex / 3, cellIndex % 3) == Player.NONE) {
+                if ((state.legalCellMask(i) & (1 << cellIndex)) != 0) {
                     sb = i;
                     break;
                 }
@@ -230,39 +177,6 @@ public class GamePanel extends JPanel {
             if (sb == -1) return;
         }
 
-        int r = cellIndex / 3;
-        int c = cellIndex % 3;
-        if (state.makeMove(sb, r, c)) {
-            repaint();
-            onMoveMade.run();
-
-             // Handle win or draw messages
-            if (state.getGameWinner() != Player.NONE) {
-                int answer = JOptionPane.showConfirmDialog(
-                        this,
-                        "Player " + state.getGameWinner() + " won the game! Restart?",
-                        "Game Over",
-                        JOptionPane.YES_NO_OPTION);
-                if (answer == JOptionPane.YES_OPTION) {
-                    state.reset();
-                    onMoveMade.run(); // update history
-                    repaint();
-                } else {
-                    System.exit(0);
-                }
-            } else if (state.isDraw()) {
-                int answer = JOptionPane.showConfirmDialog(
-                        this,
-                        "Game ended in a draw! Restart?",
-                        "Draw",
-                        JOptionPane.YES_NO_OPTION);
-                if (answer == JOptionPane.YES_OPTION) {
-                    state.reset();
-                    repaint();
-                } else {
-                    System.exit(0);
-                }
-            }
-        }
+        playMove(sb, cellIndex / 3, cellIndex % 3);
     }
 }
@@ -1,15 +1,16 @@
 package view;
 
+import ai.MctsEngine;
 import model.GameState;
-import persistence.GamePersistence;
+import model.Player;
+import persistence.SaveService;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.CompletionException;
 
 /**
  * Main game window: renders the board, manages input and menu actions.
@@ -18,8 +19,14 @@ public class GameUI extends JFrame {
     private final GamePanel gamePanel;
     private final GameState gameState;
     private MovesPanel movesPanel;
+    private final ComputerPlayer computer;   // null in hot-seat games
+    private final RemotePlayer remote;       // null unless playing over the network
 
     private static final File SAVE_FILE = new File("save.txt");
+    private static final File JOURNAL_FILE = new File("save.journal");
+    private static final long AUTOSAVE_MILLIS = 500;   // moves within this interval share one journal write
+    private static MctsEngine engine;        // shared by all vs. computer games
+    private static SaveService saves;        // background saves, loads and autosave journal
 
     /**
      * Default constructor starts a new game.
@@ -32,25 +39,47 @@ public class GameUI extends JFrame {
      * Constructor for loading a saved game state
      */
     public GameUI(GameState loadedState) {
+        this(loadedState, false);
+    }
+
+    /**
+     * Constructor for a game where the computer plays O against a human X.
+     */
+    public GameUI(GameState loadedState, boolean vsComputer) {
+        this(loadedState, vsComputer ? new ComputerPlayer(computerEngine(), Player.O) : null, null);
+    }
+
+    /**
+     * Constructor for a network game: loadedState is the position the server
+     * sent and the opponent's moves arrive through the remote player.
+     */
+    public GameUI(GameState loadedState, RemotePlayer remote) {
+        this(loadedState, null, remote);
+    }
+
+    private GameUI(GameState loadedState, ComputerPlayer computer, RemotePlayer remote) {
         this.gameState = loadedState;
+        this.computer = computer;
+        this.remote = remote;
 
-        setTitle("UNLIMITED TIC TAC TOE");
+        setTitle(remote == null ? "UNLIMITED TIC TAC TOE"
+                : "UNLIMITED TIC TAC TOE - GAME " + remote.getGameId() + " (" + remote.getSide() + ")");
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setSize(1655, 900);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
 
-        // Load board, markers and background images
-        BufferedImage boardImg = null, xImg = null, oImg = null, backgroundImg = null;
-        try {
-            boardImg = ImageIO.read(getClass().getResourceAsStream("/Plansza4.png"));
-            xImg = ImageIO.read(getClass().getResourceAsStream("/x.png"));
-            oImg = ImageIO.read(getClass().getResourceAsStream("/0.png"));
-            backgroundImg = ImageIO.read(getClass().getResourceAsStream("/background_game5.png"));
-        } catch (IOException | NullPointerException e) {
-            System.err.println("Błąd wczytywania obrazów: " + e.getMessage());
+        // Board, markers and background come decoded from the shared cache
+        long start = System.nanoTime();
+        BufferedImage boardImg = ImageCache.get(ImageCache.BOARD);
+        BufferedImage xImg = ImageCache.get(ImageCache.X);
+        BufferedImage oImg = ImageCache.get(ImageCache.O);
+        BufferedImage backgroundImg = ImageCache.get(ImageCache.GAME_BACKGROUND);
+        if (boardImg == null || xImg == null || oImg == null) {
+            System.err.println("Błąd wczytywania obrazów");
             System.exit(1);
         }
+        Timing.report("game window images", start);
 
         // Background panel scales the image
         BufferedImage finalBackgroundImg = backgroundImg;
@@ -69,8 +98,11 @@ public class GameUI extends JFrame {
         // Game and history panels
         gamePanel = new GamePanel(gameState, boardImg, xImg, oImg, this::onMoveMade);
         gamePanel.setPreferredSize(new Dimension(750, 740));
+        if (computer != null) gamePanel.setComputerSide(computer.getSide());
+        if (remote != null) gamePanel.setComputerSide(remote.getSide().opposite());
 
         movesPanel = new MovesPanel(gameState);
+        movesPanel.setOnJump(this::jumpToMove);
         // Split pane holds game and history
         JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, gamePanel, movesPanel);
         split.setDividerLocation(1300); // bliżej planszy
@@ -79,14 +111,146 @@ public class GameUI extends JFrame {
 
         setupKeyboardControls(); // enable numpad keys
         setupMenu(); // add top menu
+        openJournal();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                Timing.report("game window shown", start);
+            }
+        });
         setVisible(true);
+        if (computer != null) computer.takeTurn(gamePanel); // loaded game with O to move
+        if (remote != null) remote.start(gamePanel, this::replaceGame);
+    }
+
+    /**
+     * Returns the engine for vs. computer games, creating it on first use.
+     */
+    private static MctsEngine computerEngine() {
+        if (engine == null) engine = new MctsEngine();
+        return engine;
+    }
+
+    /**
+     * Returns the background persistence service shared by all windows,
+     * creating it on first use. Pending autosaves are written on exit.
+     */
+    static synchronized SaveService saveService() {
+        if (saves == null) {
+            SaveService service = new SaveService(AUTOSAVE_MILLIS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                service.close();
+                if (Timing.ENABLED) System.out.println("[timing] saves: " + service);
+            }, "save-service-shutdown"));
+            saves = service;
+        }
+        return saves;
+    }
+
+    /**
+     * Starts journalling this game so CONTINUE can recover it after a crash.
+     */
+    private void openJournal() {
+        if (remote != null) return;   // the server keeps network games
+        saveService().startJournal(JOURNAL_FILE, gameState);
+    }
+
+    /**
+     * Brings the journal up to date in the background; bursts of changes
+     * are coalesced into one write per autosave interval.
+     */
+    private void journalState() {
+        if (remote != null) return;
+        saveService().autosave(gameState);
+    }
+
+    /**
+     * Replaces the journal with a snapshot of this game, after the whole
+     * position changed.
+     */
+    private void rewriteJournal() {
+        if (remote != null) return;
+        saveService().compactJournal(gameState);
+    }
+
+    private void closeJournal() {
+        if (remote != null) return;
+        saveService().stopJournal();
     }
 
     /**
-     * Callback after a move: refresh move history panel.
+     * Callback after a move: journal it, refresh move history panel and let
+     * the computer reply or send the move to the server.
      */
     private void onMoveMade() {
+        journalState();
+        movesPanel.refresh();
+        if (computer != null) computer.takeTurn(gamePanel);
+        if (remote != null) remote.moveMade();
+    }
+
+    /**
+     * Switches this window to another game (a new one if loaded is null)
+     * without rebuilding it: the state is reset or copied in place and the
+     * panels, journal and computer pick up the change.
+     */
+    private void replaceGame(GameState loaded) {
+        long start = System.nanoTime();
+        if (computer != null) computer.cancel();
+        if (loaded == null) {
+            gameState.reset();
+        } else {
+            gameState.copyFrom(loaded);
+        }
+        rewriteJournal();
+        gamePanel.repaintChanged();
         movesPanel.refresh();
+        if (computer != null) computer.takeTurn(gamePanel);
+        Timing.report(loaded == null ? "restart" : "load game", start);
+    }
+
+    /**
+     * Takes the game back to the position after the given move, if the user
+     * confirms and the moves after it can be undone.
+     */
+    private void jumpToMove(int moveNumber) {
+        int moves = gameState.getMoveLog().size();
+        if (moveNumber >= moves || networkGame()) return;
+        if (JOptionPane.showConfirmDialog(this,
+                "GO BACK TO MOVE " + moveNumber + "?", "UNDO", JOptionPane.YES_NO_OPTION)
+                != JOptionPane.YES_OPTION) {
+            return;
+        }
+        if (computer != null) computer.cancel();
+        while (gameState.getMoveLog().size() > moveNumber) {
+            if (!gameState.undoMove()) break; // moves from before a fallback load cannot be undone
+        }
+        journalState();
+        gamePanel.repaintChanged();
+        movesPanel.refresh();
+        if (computer != null) computer.takeTurn(gamePanel);
+    }
+
+    /**
+     * Tells the user an action that would rewrite the shared game is not
+     * available; returns true in network games.
+     */
+    private boolean networkGame() {
+        if (remote == null) return false;
+        JOptionPane.showMessageDialog(this, "NOT AVAILABLE IN NETWORK GAMES");
+        return true;
+    }
+
+    /**
+     * Closes this window, stopping the computer's search if it is thinking
+     * and leaving the network game.
+     */
+    @Override
+    public void dispose() {
+        if (computer != null) computer.cancel();
+        if (remote != null) remote.close();
+        closeJournal();
+        super.dispose();
     }
 
     /**
@@ -116,7 +280,7 @@ public class GameUI extends JFrame {
     }
 
     /**
-     * Build and style the application menu (Save, Load, Restart, Main Menu).
+     * Build and style the application menu (Save, Load, Undo, Restart, Main Menu).
      */
     private void setupMenu() {
         // Global menu item colors for JMenuItem
@@ -140,33 +304,49 @@ public class GameUI extends JFrame {
 
         // Pozycje w menu
         JMenuItem save = new JMenuItem("SAVE");
-        save.addActionListener(e -> {
-            try {
-                GamePersistence.saveAsText(gameState, SAVE_FILE);
-                JOptionPane.showMessageDialog(this, "Zapisano grę.");
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Błąd zapisu: " + ex.getMessage());
-            }
-        });
+        save.addActionListener(e -> saveService().save(gameState, SAVE_FILE).whenComplete((v, ex) ->
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        ex == null ? "Zapisano grę." : "Błąd zapisu: " + cause(ex).getMessage()))));
 
         JMenuItem load = new JMenuItem("LOAD GAME");
         load.addActionListener(e -> {
-            try {
-                GameState loaded = GamePersistence.loadFromText(SAVE_FILE);
-                dispose();
-                new GameUI(loaded);
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "LOAD GAME ERROR " + ex.getMessage());
+            if (networkGame()) return;
+            saveService().load(SAVE_FILE).whenComplete((loaded, ex) ->
+                    SwingUtilities.invokeLater(() -> {
+                        if (ex != null) {
+                            JOptionPane.showMessageDialog(this, "LOAD GAME ERROR " + cause(ex).getMessage());
+                        } else if (isDisplayable()) {
+                            replaceGame(loaded);
+                        }
+                    }));
+        });
+
+        JMenuItem undo = new JMenuItem("UNDO");
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undo.addActionListener(e -> {
+            if (networkGame()) return;
+            if (computer != null) computer.cancel();
+            if (gameState.undoMove()) {
+                // Against the computer, take back its reply together with our move
+                if (computer != null && gameState.getCurrentPlayer() == computer.getSide()) {
+                    gameState.undoMove();
+                }
+                journalState();
+                gamePanel.repaintChanged();
+                movesPanel.refresh();
             }
+            if (computer != null) computer.takeTurn(gamePanel);   // ponder the position we went back to
         });
 
         JMenuItem restart = new JMenuItem("RESTART");
         restart.addActionListener(e -> {
+            // Network games can only be restarted once they are over (as after the game-over dialog)
+            if (remote != null && !gameState.isGameOver() && !gameState.isDraw() && networkGame()) return;
             if (JOptionPane.showConfirmDialog(this,
                     "RESTART THE GAME?", "RESTART", JOptionPane.YES_NO_OPTION)
                     == JOptionPane.YES_OPTION) {
-                dispose();
-                new GameUI();
+                replaceGame(null);
+                if (remote != null) remote.moveMade();
             }
         });
 
@@ -179,12 +359,20 @@ public class GameUI extends JFrame {
         // Składanie menu
         file.add(save);
         file.add(load);
+        file.add(undo);
         file.add(restart);
         file.add(back);
         bar.add(file);
         setJMenuBar(bar);
     }
 
+    /**
+     * Unwraps the exception a background persistence task failed with.
+     */
+    static Throwable cause(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
     public GameState getGameState() {
         return gameState;
     }
@@ -0,0 +1,87 @@
+package view;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide cache of decoded image resources.
+ * preload() starts decoding every asset on background threads as soon as the
+ * application starts; windows then take the decoded images from get(), which
+ * only waits if an image is still being decoded and never decodes the same
+ * resource twice. Images are shared and must not be modified.
+ */
+public final class ImageCache {
+    // Menu assets first: the menu is shown first, and the game assets decode while it is up
+    static final String BOARD = "/Plansza4.png";
+    static final String X = "/x.png";
+    static final String O = "/0.png";
+    static final String GAME_BACKGROUND = "/background_game5.png";
+    static final String LOGO = "/Logo.png";
+    static final String MENU_BACKGROUND = "/Background.jpg";
+    private static final String[] ASSETS = {LOGO, MENU_BACKGROUND, GAME_BACKGROUND, BOARD, X, O};
+
+    private static final Map<String, CompletableFuture<BufferedImage>> images = new ConcurrentHashMap<>();
+
+    private ImageCache() {
+    }
+
+    /**
+     * Starts decoding all assets in the background. Safe to call more than once.
+     */
+    public static void preload() {
+        int threads = Math.min(ASSETS.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "asset-preload");
+            t.setDaemon(true);
+            return t;
+        });
+        for (String path : ASSETS) {
+            pool.execute(() -> entry(path));
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Returns the decoded image for a resource path, or null if the resource
+     * is missing or unreadable. Waits if the image is still being decoded.
+     */
+    public static BufferedImage get(String path) {
+        return entry(path).join();
+    }
+
+    /**
+     * Returns the future for a path; the first caller decodes it on its own thread.
+     */
+    private static CompletableFuture<BufferedImage> entry(String path) {
+        CompletableFuture<BufferedImage> future = images.get(path);
+        if (future != null) return future;
+        CompletableFuture<BufferedImage> created = new CompletableFuture<>();
+        future = images.putIfAbsent(path, created);
+        if (future != null) return future;
+        created.complete(decode(path));
+        return created;
+    }
+
+    private static BufferedImage decode(String path) {
+        long start = System.nanoTime();
+        try (InputStream in = ImageCache.class.getResourceAsStream(path)) {
+            if (in == null) {
+                System.err.println("Missing image resource: " + path);
+                return null;
+            }
+            BufferedImage image = ImageIO.read(in);
+            Timing.report("decode " + path + " on " + Thread.currentThread().getName(), start);
+            return image;
+        } catch (IOException e) {
+            System.err.println("Cannot read image resource " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
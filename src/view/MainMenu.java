@@ -2,42 +2,47 @@ package view;
 
 import model.GameState;
 import persistence.GamePersistence;
+import persistence.MoveJournal;
+import server.Protocol;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Objects;
 /**
  * MainMenu provides the application's entry screen with options to Start a new game,
- * Continue from a saved game, or Quit the application.
+ * play against the computer, Continue from a saved game, play an unlimited
+ * (nested) board, play over the network, or Quit the application.
  */
 public class MainMenu extends JFrame {
-    // Path to the save file used by Continue
+    // Paths to the autosave journal and the save file used by Continue
     private static final File SAVE_FILE = new File("save.txt");
+    private static final File JOURNAL_FILE = new File("save.journal");
     /**
      * Constructs and displays the main menu window.
      * Sets up the background, logo, and menu buttons.
      */
     public MainMenu() {
+        long start = System.nanoTime();
         setTitle("Unlimited Tic Tac Toe");
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setMinimumSize(new Dimension(1655, 900));
         setLocationRelativeTo(null);
 
         // Use a custom JPanel to draw the background image scaled to fit
-        setContentPane(new BackgroundPanel("/Background.jpg"));
+        setContentPane(new BackgroundPanel());
         setLayout(new GridBagLayout());
 
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.gridx = 0;
         gbc.insets = new Insets(20, 0, 20, 0);
 
-        // Load and display the game logo at the top
-        ImageIcon logoIcon = new ImageIcon(
-                Objects.requireNonNull(getClass().getResource("/Logo.png"))
-        );
-        JLabel title = new JLabel(logoIcon);
+        // Display the game logo at the top (decoded in the background at start-up)
+        BufferedImage logo = ImageCache.get(ImageCache.LOGO);
+        JLabel title = logo != null ? new JLabel(new ImageIcon(logo)) : new JLabel("UNLIMITED TIC TAC TOE");
         gbc.gridy = 0;
         add(title, gbc);
 
@@ -47,9 +52,15 @@ public class MainMenu extends JFrame {
             SwingUtilities.invokeLater(GameUI::new);  // open game window
         });
 
-        // Button to continue from last saved state
-        addMenuButton("CONTINUE", gbc, 2, () -> {
-            if (!SAVE_FILE.exists()) {
+        // Button to start a game against the computer
+        addMenuButton("VS. COMPUTER", gbc, 2, () -> {
+            dispose();  // close menu
+            SwingUtilities.invokeLater(() -> new GameUI(new GameState(), true));
+        });
+
+        // Button to continue the last game (autosave journal, else the saved state)
+        addMenuButton("CONTINUE", gbc, 3, () -> {
+            if (!JOURNAL_FILE.exists() && !SAVE_FILE.exists()) {
                 JOptionPane.showMessageDialog(
                         this,
                         "No saved game found. Please save a game first.",
@@ -58,24 +69,89 @@ public class MainMenu extends JFrame {
                 );
                 return;
             }
+            // Recover the journalled game (falling back to the save file) off the EDT
+            GameUI.saveService().submit(MainMenu::loadLastGame).whenComplete((loaded, ex) ->
+                    SwingUtilities.invokeLater(() -> {
+                        if (ex != null) {
+                            JOptionPane.showMessageDialog(
+                                    this,
+                                    "Failed to load game:\n" + GameUI.cause(ex).getMessage(),
+                                    "Loading Error",
+                                    JOptionPane.ERROR_MESSAGE
+                            );
+                        } else if (isDisplayable()) {
+                            dispose();  // close menu
+                            new GameUI(loaded);  // open game with loaded state
+                        }
+                    }));
+        });
+        // Button to start a hot-seat game on a depth 3 (729 cell) nested board
+        addMenuButton("UNLIMITED (DEPTH 3)", gbc, 4, () -> {
+            dispose();  // close menu
+            SwingUtilities.invokeLater(() -> new NestedGameWindow(3));
+        });
+        // Button to play against someone else through a game server
+        addMenuButton("NETWORK GAME", gbc, 5, this::joinNetworkGame);
+        // Button to exit the application
+        addMenuButton("QUIT", gbc, 6, () -> System.exit(0));
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                Timing.report("main menu built", start);
+                Timing.reportSinceLaunch("main menu shown");
+            }
+        });
+        setVisible(true);
+    }
+    /**
+     * Asks for a server and a game id (none creates a game), connects in the
+     * background and opens the game window once the server has seated us.
+     */
+    private void joinNetworkGame() {
+        String address = JOptionPane.showInputDialog(this, "SERVER (HOST:PORT)",
+                "localhost:" + Protocol.DEFAULT_PORT);
+        if (address == null || address.isBlank()) return;
+        String game = JOptionPane.showInputDialog(this, "GAME ID (EMPTY = NEW GAME)", "");
+        if (game == null) return;
+        Thread.ofVirtual().start(() -> {
             try {
-                // Load saved state from text file
-                GameState loaded = GamePersistence.loadFromText(SAVE_FILE);
-                dispose();  // close menu
-                new GameUI(loaded);  // open game with loaded state
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(
+                int colon = address.lastIndexOf(':');
+                String host = colon < 0 ? address.trim() : address.substring(0, colon).trim();
+                int port = colon < 0 ? Protocol.DEFAULT_PORT : Integer.parseInt(address.substring(colon + 1).trim());
+                RemotePlayer remote = RemotePlayer.connect(host, port,
+                        game.isBlank() ? -1 : Long.parseLong(game.trim()));
+                SwingUtilities.invokeLater(() -> {
+                    if (!isDisplayable()) {
+                        remote.close();
+                        return;
+                    }
+                    dispose();  // close menu
+                    new GameUI(remote.getStartState(), remote);
+                });
+            } catch (IOException | RuntimeException e) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(
                         this,
-                        "Failed to load game:\n" + ex.getMessage(),
-                        "Loading Error",
+                        "Failed to join network game:\n" + e.getMessage(),
+                        "Network game",
                         JOptionPane.ERROR_MESSAGE
-                );
+                ));
             }
         });
-        // Button to exit the application
-        addMenuButton("QUIT", gbc, 3, () -> System.exit(0));
-
-        setVisible(true);
+    }
+    /**
+     * Replays the autosave journal if it is readable, otherwise loads the save file.
+     */
+    private static GameState loadLastGame() throws IOException {
+        if (JOURNAL_FILE.exists()) {
+            try {
+                return MoveJournal.recover(JOURNAL_FILE);
+            } catch (IOException e) {
+                if (!SAVE_FILE.exists()) throw e;
+                System.err.println("Autosave unreadable, loading save file: " + e.getMessage());
+            }
+        }
+        return GamePersistence.loadFromText(SAVE_FILE);
     }
     /**
      * Helper method to create and add a rounded button to the menu.
@@ -99,13 +175,12 @@ public class MainMenu extends JFrame {
     static class BackgroundPanel extends JPanel {
         private final Image background;
         /**
-         * Loads the background image from the given resource path.
-         * path resource path to the image file
+         * Takes the menu background from the image cache, falling back to the
+         * game background when the menu image is not bundled.
          */
-        public BackgroundPanel(String path) {
-            background = new ImageIcon(
-                    Objects.requireNonNull(getClass().getResource(path))
-            ).getImage();
+        public BackgroundPanel() {
+            BufferedImage image = ImageCache.get(ImageCache.MENU_BACKGROUND);
+            background = image != null ? image : ImageCache.get(ImageCache.GAME_BACKGROUND);
         }
         /**
          * Paints the background image scaled to the panel's current size.
@@ -113,13 +188,14 @@ public class MainMenu extends JFrame {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            g.drawImage(background, 0, 0, getWidth(), getHeight(), this);
+            if (background != null) g.drawImage(background, 0, 0, getWidth(), getHeight(), this);
         }
     }
     /**
      * Entry point of the application. Launches the MainMenu on the Event Dispatch Thread.
      */
     public static void main(String[] args) {
+        ImageCache.preload();
         SwingUtilities.invokeLater(MainMenu::new);
     }
 }
\ No newline at end of file
@@ -1,25 +1,35 @@
 package view;
 
 import model.GameState;
+import model.Move;
+import model.Player;
+import model.Snapshot;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
 
 /**
  * MovesPanel displays the history of moves made in the game.
  * It renders a rounded, semi-transparent panel containing a scrollable list of moves.
+ * Clicking a move offers to take the game back to the position after it.
  */
 
 public class MovesPanel extends JPanel {
-    private final GameState state;
-    private final JTextArea area;
+    private final HistoryModel model;
+    private final JList<String> list;
+    private IntConsumer onJump;                     // told which move number was clicked
 
     /**
      * Constructs a new MovesPanel.
      *  state the GameState object from which to read the move history
      */
     public MovesPanel(GameState state) {
-        this.state = state;
+        this.model = new HistoryModel(state);
+        model.sync();
 
         // Make the panel transparent and use a border layout with padding
         setOpaque(false);
@@ -52,17 +62,36 @@ public class MovesPanel extends JPanel {
         title.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
         roundedPanel.add(title, BorderLayout.NORTH);
 
-        // Create and configure the text area for displaying moves
-        area = new JTextArea();
-        area.setFont(new Font("Monospaced", Font.PLAIN, 14));
-        area.setEditable(false);
-        area.setLineWrap(true);
-        area.setWrapStyleWord(true);
-        area.setOpaque(false);
-        area.setBackground(new Color(0, 0, 0, 0));
-
-        // Place the text area inside a scroll pane
-        JScrollPane scroll = new JScrollPane(area);
+        // Create and configure the list; rows are fixed-height so only visible ones are laid out and painted
+        list = new JList<>(model);
+        list.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        list.setPrototypeCellValue("81. X → board 8, box 8");
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setOpaque(false);
+        list.setBackground(new Color(0, 0, 0, 0));
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, false);
+                setOpaque(isSelected);
+                return this;
+            }
+        });
+        list.setToolTipText("Click a move to go back to the position after it");
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0 && list.getCellBounds(index, index).contains(e.getPoint()) && onJump != null) {
+                    onJump.accept(index + 1);
+                }
+                list.clearSelection();
+            }
+        });
+
+        // Place the list inside a scroll pane
+        JScrollPane scroll = new JScrollPane(list);
         scroll.setOpaque(false);
         scroll.getViewport().setOpaque(false);
         scroll.setBorder(BorderFactory.createEmptyBorder());
@@ -72,16 +101,69 @@ public class MovesPanel extends JPanel {
         add(roundedPanel, BorderLayout.CENTER);
     }
 
+    /**
+     * Registers a callback invoked with a move number (1 = first move) when
+     * the user clicks that move in the list.
+     */
+    public void setOnJump(IntConsumer onJump) {
+        this.onJump = onJump;
+    }
+
     /**
      * Refreshes the displayed move history.
-     * Call this method after any move is made to update the list.
+     * Call this method after any move is made to update the list. Only the
+     * rows that changed since the last refresh are reported to the list.
      */
     public void refresh() {
-        StringBuilder sb = new StringBuilder();
-        int index = 1;
-        for (String move : state.getMoveHistory()) {
-            sb.append(index++).append(". ").append(move).append("\n");
+        int first = model.sync();
+        if (first >= 0 && model.getSize() > 0) list.ensureIndexIsVisible(model.getSize() - 1);
+    }
+
+    /**
+     * List model over the game's move history, read from its snapshots so
+     * the list never looks at a log that is being changed. It remembers the
+     * moves it has reported, so a refresh fires events only for the rows
+     * after the first difference: one added row per move, one removed row
+     * per undo. Row text is formatted when the list paints the row.
+     */
+    private static final class HistoryModel extends AbstractListModel<String> {
+        private final GameState state;
+        private int[] shown = new int[Move.COUNT];      // packed moves the list currently displays
+        private int size;
+
+        HistoryModel(GameState state) {
+            this.state = state;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return (index + 1) + ". " + GameState.describeMove(
+                    (shown[index] & 0x80) != 0 ? Player.O : Player.X, shown[index] & 0x7F);
+        }
+
+        /**
+         * Catches up with the log; returns the first changed row, or -1 if nothing changed.
+         */
+        int sync() {
+            Snapshot log = state.snapshot();
+            int newSize = log.getMoveCount();
+            int first = 0;
+            int common = Math.min(size, newSize);
+            while (first < common && shown[first] == log.packedMove(first)) first++;
+            if (first == size && first == newSize) return -1;
+
+            int oldSize = size;
+            if (shown.length < newSize) shown = Arrays.copyOf(shown, Math.max(newSize, shown.length * 2));
+            for (int i = first; i < newSize; i++) shown[i] = log.packedMove(i);
+            size = newSize;
+            if (first < oldSize) fireIntervalRemoved(this, first, oldSize - 1);
+            if (first < newSize) fireIntervalAdded(this, first, newSize - 1);
+            return first;
         }
-        area.setText(sb.toString());
     }
-}
\ No newline at end of file
+}
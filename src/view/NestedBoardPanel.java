@@ -0,0 +1,248 @@
+package view;
+
+import model.NestedBoard;
+import model.Player;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.geom.Line2D;
+import java.awt.geom.Ellipse2D;
+
+/**
+ * Level-of-detail renderer and input for a NestedBoard of any depth.
+ * Painting walks the board from the top and stops early wherever more
+ * detail would be invisible or redundant: boards outside the clip are
+ * skipped, a won board is drawn as one big mark, a drawn board as a tint,
+ * and boards smaller than a few pixels as a summary of their children.
+ * The cost of a frame therefore follows what is on screen, not 9^k.
+ *
+ * The mouse wheel zooms around the pointer, dragging pans, and a click
+ * plays the cell under the pointer once cells are large enough to aim at.
+ */
+public class NestedBoardPanel extends JPanel {
+    private static final int MARGIN = 20;
+    private static final double MIN_DETAIL = 15;         // below this many pixels a board is summarised
+    private static final double MIN_CLICK = 6;           // cells smaller than this ignore clicks
+    private static final double MAX_ZOOM = 512;
+
+    private static final Color X_COLOR = new Color(200, 40, 40);
+    private static final Color O_COLOR = new Color(30, 90, 200);
+    // Opaque tints (the board is white underneath): translucent fills are slow in software
+    private static final Color X_TINT = new Color(245, 208, 208);
+    private static final Color O_TINT = new Color(206, 220, 245);
+    private static final Color DRAW_TINT = new Color(205, 205, 205);
+    private static final Color GRID = new Color(40, 40, 40);
+
+    private final NestedBoard board;
+    private final Runnable onMoveMade;
+    private double zoom = 1;
+    private double panX, panY;                           // offset of the board centre, in pixels
+    private Point dragFrom;
+
+    /**
+     * Creates a panel showing the board; onMoveMade runs after every move played by a click.
+     */
+    public NestedBoardPanel(NestedBoard board, Runnable onMoveMade) {
+        this.board = board;
+        this.onMoveMade = onMoveMade;
+        setBackground(new Color(245, 240, 225));
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragFrom = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                panX += e.getX() - dragFrom.x;
+                panY += e.getY() - dragFrom.y;
+                dragFrom = e.getPoint();
+                repaint();
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                handleClick(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomAt(e.getX(), e.getY(), Math.pow(1.25, -e.getPreciseWheelRotation()));
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Resets zoom and pan so the whole board fits the panel.
+     */
+    public void fitBoard() {
+        zoom = 1;
+        panX = 0;
+        panY = 0;
+        repaint();
+    }
+
+    /**
+     * Zooms by a factor, keeping the board point under (x, y) in place.
+     */
+    private void zoomAt(int x, int y, double factor) {
+        double next = Math.max(1, Math.min(MAX_ZOOM, zoom * factor));
+        factor = next / zoom;
+        double cx = getWidth() / 2.0 + panX;
+        double cy = getHeight() / 2.0 + panY;
+        panX += (x - cx) * (1 - factor);
+        panY += (y - cy) * (1 - factor);
+        zoom = next;
+        repaint();
+    }
+
+    private double boardSize() {
+        return (Math.min(getWidth(), getHeight()) - 2 * MARGIN) * zoom;
+    }
+
+    private double originX() {
+        return getWidth() / 2.0 + panX - boardSize() / 2;
+    }
+
+    private double originY() {
+        return getHeight() / 2.0 + panY - boardSize() / 2;
+    }
+
+    private void handleClick(int x, int y) {
+        if (board.isGameOver()) return;
+        int side = gridSide();
+        double cellSize = boardSize() / side;
+        if (cellSize < MIN_CLICK) return;                 // zoom in first
+        int col = (int) Math.floor((x - originX()) / cellSize);
+        int row = (int) Math.floor((y - originY()) / cellSize);
+        if (row < 0 || col < 0 || row >= side || col >= side) return;
+        if (board.makeMove(board.cellAt(row, col))) {
+            repaint();
+            if (onMoveMade != null) onMoveMade.run();
+        }
+    }
+
+    // Cells along one side of the full grid, 3^depth
+    private int gridSide() {
+        return (int) Math.round(Math.sqrt(board.getCellCount()));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+        double size = boardSize();
+        double x0 = originX();
+        double y0 = originY();
+        g2.setColor(Color.WHITE);
+        g2.fill(new Rectangle.Double(x0, y0, size, size));
+        paintNode(g2, clip, board.getDepth(), 0, x0, y0, size);
+        paintConstraint(g2, x0, y0, size);
+        g2.dispose();
+    }
+
+    /**
+     * Draws one node (level 0 = cell) occupying the square (x, y, size).
+     */
+    private void paintNode(Graphics2D g, Rectangle clip, int level, int index, double x, double y, double size) {
+        if (x > clip.getMaxX() || y > clip.getMaxY() || x + size < clip.x || y + size < clip.y) return;
+
+        Player owner = board.getOwner(level, index);
+        if (owner != Player.NONE) {
+            if (level > 0) {
+                g.setColor(owner == Player.X ? X_TINT : O_TINT);
+                g.fill(new Rectangle.Double(x, y, size, size));
+            }
+            paintMark(g, owner, x, y, size);
+            return;
+        }
+        if (level == 0) return;
+        if (board.isClosed(level, index)) {
+            g.setColor(DRAW_TINT);
+            g.fill(new Rectangle.Double(x, y, size, size));
+            return;
+        }
+        if (size < MIN_DETAIL) {
+            paintSummary(g, level, index, x, y, size);
+            return;
+        }
+
+        double child = size / 3;
+        for (int i = 0; i < 9; i++) {
+            paintNode(g, clip, level - 1, index * 9 + i, x + (i % 3) * child, y + (i / 3) * child, child);
+        }
+        paintGrid(g, level, x, y, size);
+    }
+
+    /**
+     * Too small to show children: tint by which player owns more of them.
+     */
+    private void paintSummary(Graphics2D g, int level, int index, double x, double y, double size) {
+        int xs = Integer.bitCount(board.getChildMask(Player.X, level, index));
+        int os = Integer.bitCount(board.getChildMask(Player.O, level, index));
+        if (xs == os) return;
+        g.setColor(xs > os ? X_TINT : O_TINT);
+        g.fill(new Rectangle.Double(x, y, size, size));
+    }
+
+    /**
+     * Inner lines of a board; higher levels get thicker lines.
+     */
+    private void paintGrid(Graphics2D g, int level, double x, double y, double size) {
+        float width = (float) Math.max(0.5, Math.min(size / 60, level * 1.5));
+        g.setColor(GRID);
+        g.setStroke(new BasicStroke(width));
+        for (int i = 1; i < 3; i++) {
+            double offset = size * i / 3;
+            g.draw(new Line2D.Double(x + offset, y, x + offset, y + size));
+            g.draw(new Line2D.Double(x, y + offset, x + size, y + offset));
+        }
+    }
+
+    private void paintMark(Graphics2D g, Player owner, double x, double y, double size) {
+        double inset = size * 0.18;
+        double s = size - 2 * inset;
+        if (s < 2) {
+            g.setColor(owner == Player.X ? X_COLOR : O_COLOR);
+            g.fill(new Rectangle.Double(x, y, size, size));
+            return;
+        }
+        // Only the marks are antialiased; fills and grid lines are axis aligned
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setStroke(new BasicStroke((float) Math.max(1, size * 0.08), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        if (owner == Player.X) {
+            g.setColor(X_COLOR);
+            g.draw(new Line2D.Double(x + inset, y + inset, x + inset + s, y + inset + s));
+            g.draw(new Line2D.Double(x + inset + s, y + inset, x + inset, y + inset + s));
+        } else {
+            g.setColor(O_COLOR);
+            g.draw(new Ellipse2D.Double(x + inset, y + inset, s, s));
+        }
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
+    /**
+     * Outlines the board the next move must be played in.
+     */
+    private void paintConstraint(Graphics2D g, double x0, double y0, double size) {
+        if (board.isGameOver()) return;
+        int level = board.getConstraintLevel();
+        int span = board.getCellCount() / board.getNodeCount(level);       // cells in the node, 9^level
+        int first = board.getConstraintIndex() * span;
+        double cellSize = size / gridSide();
+        double side = cellSize * Math.round(Math.sqrt(span));
+        g.setColor(SpriteCache.HIGHLIGHT);
+        g.fill(new Rectangle.Double(x0 + board.colOf(first) * cellSize, y0 + board.rowOf(first) * cellSize, side, side));
+        g.setColor(Color.ORANGE);
+        g.setStroke(new BasicStroke(3));
+        g.draw(new Rectangle.Double(x0 + board.colOf(first) * cellSize, y0 + board.rowOf(first) * cellSize, side, side));
+    }
+}
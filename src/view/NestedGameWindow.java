@@ -0,0 +1,126 @@
+package view;
+
+import model.NestedBoard;
+import model.Player;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+
+/**
+ * Hot-seat window for the unlimited game: a NestedBoard of the chosen depth
+ * shown by a zoomable NestedBoardPanel, with a status line and the usual menu.
+ */
+public class NestedGameWindow extends JFrame {
+    private final NestedBoard board;
+    private final NestedBoardPanel boardPanel;
+    private final JLabel status = new JLabel();
+
+    /**
+     * Opens a window with a new game of the given depth (3 = 729 cells).
+     */
+    public NestedGameWindow(int depth) {
+        this.board = new NestedBoard(depth);
+
+        setTitle("UNLIMITED TIC TAC TOE - DEPTH " + depth);
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setSize(1100, 950);
+        setLocationRelativeTo(null);
+        setLayout(new BorderLayout());
+
+        boardPanel = new NestedBoardPanel(board, this::onMoveMade);
+        add(boardPanel, BorderLayout.CENTER);
+
+        status.setBorder(BorderFactory.createEmptyBorder(6, 12, 6, 12));
+        status.setFont(status.getFont().deriveFont(Font.BOLD, 16f));
+        add(status, BorderLayout.SOUTH);
+
+        setupMenu();
+        updateStatus();
+        setVisible(true);
+    }
+
+    private void onMoveMade() {
+        updateStatus();
+        if (board.isGameOver()) {
+            JOptionPane.showMessageDialog(this,
+                    board.isDraw() ? "REMIS!" : "WYGRAŁ " + board.getWinner() + "!");
+        }
+    }
+
+    private void updateStatus() {
+        String text;
+        if (board.isGameOver()) {
+            text = board.isDraw() ? "Draw" : board.getWinner() + " wins";
+        } else {
+            text = board.getCurrentPlayer() + " to move";
+        }
+        status.setText(text + "   |   move " + board.getMoveCount() + " of at most " + board.getCellCount()
+                + "   |   wheel: zoom, drag: pan, click: play");
+    }
+
+    /**
+     * Menu with Undo, Restart, Fit board and Main Menu.
+     */
+    private void setupMenu() {
+        JMenuBar bar = new JMenuBar();
+        bar.setOpaque(true);
+        bar.setBackground(Color.BLACK);
+        bar.setBorder(BorderFactory.createMatteBorder(0, 0, 2, 0, Color.DARK_GRAY));
+
+        JMenu file = new JMenu("MENU");
+        file.setOpaque(true);
+        file.setBackground(new Color(45, 45, 45));
+        file.setForeground(Color.WHITE);
+        file.setBorder(BorderFactory.createEmptyBorder(5, 15, 5, 15));
+
+        JMenuItem undo = new JMenuItem("UNDO");
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        undo.addActionListener(e -> {
+            if (board.undoMove()) {
+                boardPanel.repaint();
+                updateStatus();
+            }
+        });
+
+        JMenuItem restart = new JMenuItem("RESTART");
+        restart.addActionListener(e -> {
+            if (JOptionPane.showConfirmDialog(this,
+                    "RESTART THE GAME?", "RESTART", JOptionPane.YES_NO_OPTION)
+                    == JOptionPane.YES_OPTION) {
+                board.reset();
+                boardPanel.repaint();
+                updateStatus();
+            }
+        });
+
+        JMenuItem fit = new JMenuItem("FIT BOARD");
+        fit.addActionListener(e -> boardPanel.fitBoard());
+
+        JMenuItem back = new JMenuItem("MAIN MENU");
+        back.addActionListener(e -> {
+            dispose();
+            new MainMenu();
+        });
+
+        file.add(undo);
+        file.add(restart);
+        file.add(fit);
+        file.add(back);
+        bar.add(file);
+        setJMenuBar(bar);
+    }
+
+    public NestedBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Starts an unlimited game directly; the optional argument is the depth.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        SwingUtilities.invokeLater(() -> new NestedGameWindow(depth));
+    }
+}
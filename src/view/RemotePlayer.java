@@ -0,0 +1,201 @@
+package view;
+
+import model.GameState;
+import model.Move;
+import model.Player;
+import server.GameClient;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * RemotePlayer connects the game shown in a GamePanel to a GameServer: local
+ * moves are sent to the server and the opponent's moves, pushed by the
+ * server, are played on the panel. Messages are read on a virtual thread
+ * and handled on the Event Dispatch Thread.
+ *
+ * The server echoes every move, so a MOVE is either the echo of one of our
+ * unconfirmed moves or the opponent's reply. If the two sides ever disagree
+ * (a rejected move, a restart race) the position is synced from the server.
+ */
+public class RemotePlayer {
+    private final GameClient client;
+    private final long gameId;
+    private final Player side;
+    private final GameState startState;
+    private GamePanel panel;
+    private Consumer<GameState> replace;   // switches the window to another position; null = restart
+    private int sent;                      // moves in the local log the server knows about or will
+    private int confirmed;                 // moves the server has echoed or pushed
+    private int restarting;                // our RESTART requests not answered yet
+    private boolean syncing;               // waiting for a STATE; moves meanwhile are ignored
+    private volatile boolean closed;
+
+    private RemotePlayer(GameClient client, long gameId, Player side, GameState startState) {
+        this.client = client;
+        this.gameId = gameId;
+        this.side = side;
+        this.startState = startState;
+    }
+
+    /**
+     * Connects to a server and creates a game (gameId -1) or joins one.
+     * Blocks until the server has seated us, so call it off the EDT.
+     */
+    public static RemotePlayer connect(String host, int port, long gameId) throws IOException {
+        GameClient client = GameClient.connect(host, port);
+        try {
+            if (gameId < 0) {
+                client.create(false);
+            } else {
+                client.join(gameId);
+            }
+            client.flush();
+            GameClient.Event game = client.read();
+            if (game.kind() == GameClient.Kind.ERROR) throw new IOException(game.message());
+            GameClient.Event state = client.read();
+            if (game.kind() != GameClient.Kind.GAME || state.kind() != GameClient.Kind.STATE) {
+                throw new IOException("unexpected reply from server");
+            }
+            return new RemotePlayer(client, game.gameId(), game.player(), state.state());
+        } catch (IOException | RuntimeException e) {
+            client.close();
+            throw e;
+        }
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * The position the server sent when we were seated.
+     */
+    public GameState getStartState() {
+        return startState;
+    }
+
+    /**
+     * The side played in this window.
+     */
+    public Player getSide() {
+        return side;
+    }
+
+    /**
+     * Starts playing the game shown in the panel, which must hold the
+     * position the server sent with the GAME message. The replace callback
+     * switches the window to a position from the server (null: restart).
+     */
+    public void start(GamePanel panel, Consumer<GameState> replace) {
+        this.panel = panel;
+        this.replace = replace;
+        sent = confirmed = panel.getGameState().getMoveLog().size();
+        Thread.ofVirtual().name("remote-player-" + gameId).start(this::readLoop);
+    }
+
+    /**
+     * Called on the EDT after the panel's game changed: sends the local
+     * moves the server has not seen yet, or a restart if the game was reset.
+     */
+    public void moveMade() {
+        GameState state = panel.getGameState();
+        int size = state.getMoveLog().size();
+        try {
+            if (size < sent) {
+                restarting++;
+                sent = confirmed = 0;
+                client.restart();
+            }
+            for (; sent < size; sent++) client.move(state.getMoveLog().move(sent));
+            client.flush();
+        } catch (IOException e) {
+            connectionLost(e);
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                GameClient.Event event = client.read();
+                SwingUtilities.invokeLater(() -> handle(event));
+            }
+        } catch (IOException e) {
+            if (!closed) SwingUtilities.invokeLater(() -> connectionLost(e));
+        }
+    }
+
+    private void handle(GameClient.Event event) {
+        if (closed) return;
+        switch (event.kind()) {
+            case MOVE -> {
+                if (syncing) return;
+                if (confirmed < sent) {
+                    confirmed++;                        // echo of our own move
+                } else {
+                    confirmed++;
+                    sent++;                             // counted before playMove reports it back
+                    int cell = Move.cellOf(event.move());
+                    if (!panel.playMove(Move.subBoardOf(event.move()), cell / 3, cell % 3)) sync();
+                }
+            }
+            case STATE -> {
+                syncing = false;
+                replace.accept(event.state());
+                sent = confirmed = event.state().getMoveLog().size();
+            }
+            case RESTARTED -> {
+                if (syncing) return;
+                if (restarting > 0) {
+                    restarting--;
+                } else {
+                    replace.accept(null);               // the opponent restarted
+                }
+                sent = confirmed = 0;
+            }
+            case ILLEGAL -> sync();
+            case ERROR -> {
+                // A failed restart just means the opponent moved first; anything else is shown
+                if (restarting == 0) JOptionPane.showMessageDialog(panel, event.message(),
+                        "Server", JOptionPane.WARNING_MESSAGE);
+                restarting = 0;
+                sync();
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Asks the server for the current position; it replaces the local one when it arrives.
+     */
+    private void sync() {
+        syncing = true;
+        try {
+            client.sync();
+            client.flush();
+        } catch (IOException e) {
+            connectionLost(e);
+        }
+    }
+
+    private void connectionLost(IOException e) {
+        if (closed) return;
+        close();
+        JOptionPane.showMessageDialog(panel, "Connection to the server lost: " + e.getMessage(),
+                "Network game", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Disconnects; the server frees our seat.
+     */
+    public void close() {
+        closed = true;
+        try {
+            client.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+}
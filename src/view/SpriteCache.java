@@ -0,0 +1,107 @@
+package view;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pre-scaled copies of the board and mark images for GamePanel.
+ * The copies are made once per board size and display scale, in the
+ * display's compatible pixel format, at device resolution; drawing them
+ * afterwards is a plain blit instead of a bilinear scale per image per frame.
+ */
+class SpriteCache {
+    /** Paint for cells the current player may move to, shared by every repaint. */
+    static final Color HIGHLIGHT = new Color(255, 255, 0, 100);
+
+    private final BufferedImage boardSource;
+    private final BufferedImage xSource;
+    private final BufferedImage oSource;
+
+    private Image board;
+    private Image xCell;
+    private Image oCell;
+    private Image xSubBoard;
+    private Image oSubBoard;
+
+    // What the cached copies were built for
+    private int boardW, boardH, cellW, cellH, subW, subH;
+    private double scaleX, scaleY;
+    private GraphicsConfiguration config;
+
+    SpriteCache(BufferedImage boardSource, BufferedImage xSource, BufferedImage oSource) {
+        this.boardSource = boardSource;
+        this.xSource = xSource;
+        this.oSource = oSource;
+    }
+
+    /**
+     * Makes sure the copies match the given logical sizes and the scale of the
+     * graphics they will be drawn with, rebuilding them if anything changed.
+     */
+    void validate(Graphics2D g, int boardW, int boardH, int cellW, int cellH, int subW, int subH) {
+        AffineTransform t = g.getTransform();
+        double sx = t.getScaleX();
+        double sy = t.getScaleY();
+        GraphicsConfiguration gc = g.getDeviceConfiguration();
+        if (board != null && boardW == this.boardW && boardH == this.boardH
+                && cellW == this.cellW && cellH == this.cellH && subW == this.subW && subH == this.subH
+                && sx == scaleX && sy == scaleY && gc == config) {
+            return;
+        }
+        this.boardW = boardW;
+        this.boardH = boardH;
+        this.cellW = cellW;
+        this.cellH = cellH;
+        this.subW = subW;
+        this.subH = subH;
+        this.scaleX = sx;
+        this.scaleY = sy;
+        this.config = gc;
+        board = scale(boardSource, boardW, boardH);
+        xCell = scale(xSource, cellW, cellH);
+        oCell = scale(oSource, cellW, cellH);
+        xSubBoard = scale(xSource, subW, subH);
+        oSubBoard = scale(oSource, subW, subH);
+    }
+
+    Image board() {
+        return board;
+    }
+
+    Image cell(boolean x) {
+        return x ? xCell : oCell;
+    }
+
+    Image subBoard(boolean x) {
+        return x ? xSubBoard : oSubBoard;
+    }
+
+    /**
+     * Creates a translucent image in the screen's compatible format, or in
+     * premultiplied ARGB (the fastest format for the software loops) when
+     * drawing off screen.
+     */
+    static BufferedImage translucentImage(GraphicsConfiguration gc, int w, int h) {
+        if (gc != null && gc.getDevice().getType() == GraphicsDevice.TYPE_RASTER_SCREEN) {
+            return gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /**
+     * Scales a source image once, with high quality, to w x h logical pixels
+     * at the current device scale.
+     */
+    private Image scale(BufferedImage source, int w, int h) {
+        int pw = Math.max(1, (int) Math.ceil(w * scaleX));
+        int ph = Math.max(1, (int) Math.ceil(h * scaleY));
+        BufferedImage copy = translucentImage(config, pw, ph);
+        Graphics2D g = copy.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, pw, ph, null);
+        g.dispose();
+        return copy;
+    }
+}
@@ -0,0 +1,33 @@
+package view;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Optional start-up and latency measurements, printed to standard output
+ * when the application runs with -Duttt.timing=true.
+ */
+public final class Timing {
+    public static final boolean ENABLED = Boolean.getBoolean("uttt.timing");
+
+    private Timing() {
+    }
+
+    /**
+     * Reports the time elapsed since start (a System.nanoTime value).
+     */
+    public static void report(String event, long start) {
+        if (ENABLED) {
+            System.out.printf("[timing] %s: %.1f ms%n", event, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    /**
+     * Reports the time elapsed since the JVM was launched.
+     */
+    public static void reportSinceLaunch(String event) {
+        if (ENABLED) {
+            long launched = ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.printf("[timing] %s: %d ms after launch%n", event, System.currentTimeMillis() - launched);
+        }
+    }
+}
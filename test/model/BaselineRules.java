@@ -0,0 +1,103 @@
+package model;
+
+/**
+ * The rules as the original array-based GameState implemented them, before
+ * the bitboard and lookup-table rewrites. Kept deliberately naive so the
+ * tests can check the optimised engines against it move by move.
+ */
+final class BaselineRules {
+    private final Player[][][] cells = new Player[9][3][3];
+    private final Player[] winners = new Player[9];
+    private Player currentPlayer = Player.X;
+    private int nextActiveSubBoard = -1;
+
+    BaselineRules() {
+        for (int sb = 0; sb < 9; sb++) {
+            winners[sb] = Player.NONE;
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    cells[sb][r][c] = Player.NONE;
+                }
+            }
+        }
+    }
+
+    boolean isLegal(int subBoard, int row, int col) {
+        return !isGameOver() && winners[subBoard] == Player.NONE
+                && cells[subBoard][row][col] == Player.NONE
+                && (nextActiveSubBoard == -1 || subBoard == nextActiveSubBoard);
+    }
+
+    boolean makeMove(int subBoard, int row, int col) {
+        if (!isLegal(subBoard, row, col)) return false;
+        cells[subBoard][row][col] = currentPlayer;
+        if (checkWin(cells[subBoard], currentPlayer)) {
+            winners[subBoard] = currentPlayer;
+        }
+        if (getGameWinner() != Player.NONE) {
+            nextActiveSubBoard = -2;
+        } else {
+            int next = row * 3 + col;
+            nextActiveSubBoard = (!isSubBoardFull(next) && winners[next] == Player.NONE) ? next : -1;
+            currentPlayer = currentPlayer.opposite();
+        }
+        return true;
+    }
+
+    boolean isSubBoardFull(int sb) {
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                if (cells[sb][r][c] == Player.NONE) return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isDraw() {
+        if (getGameWinner() != Player.NONE) return false;
+        for (int sb = 0; sb < 9; sb++) {
+            if (winners[sb] == Player.NONE && !isSubBoardFull(sb)) return false;
+        }
+        return true;
+    }
+
+    boolean isGameOver() {
+        return getGameWinner() != Player.NONE;
+    }
+
+    Player getCell(int sb, int r, int c) {
+        return cells[sb][r][c];
+    }
+
+    Player getSubBoardWinner(int sb) {
+        return winners[sb];
+    }
+
+    Player getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    int getNextActiveSubBoard() {
+        return nextActiveSubBoard;
+    }
+
+    Player getGameWinner() {
+        Player[][] virt = new Player[3][3];
+        for (int sb = 0; sb < 9; sb++) {
+            virt[sb / 3][sb % 3] = winners[sb];
+        }
+        for (Player p : new Player[]{Player.X, Player.O}) {
+            if (checkWin(virt, p)) return p;
+        }
+        return Player.NONE;
+    }
+
+    private static boolean checkWin(Player[][] board, Player p) {
+        for (int i = 0; i < 3; i++) {
+            if (board[i][0] == p && board[i][1] == p && board[i][2] == p) return true;
+            if (board[0][i] == p && board[1][i] == p && board[2][i] == p) return true;
+        }
+        return (board[0][0] == p && board[1][1] == p && board[2][2] == p)
+                || (board[0][2] == p && board[1][1] == p && board[2][0] == p);
+    }
+}
@@ -0,0 +1,202 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the bitboard GameState against the original rules on random games,
+ * and its make/unmake and incremental Zobrist key against recomputation.
+ */
+class GameStateTest {
+    private static final int GAMES = 20_000;
+
+    @Test
+    void matchesBaselineRulesOnRandomGames() {
+        SplittableRandom random = new SplittableRandom(1);
+        int[] moves = new int[Move.COUNT];
+        for (int g = 0; g < GAMES / 4; g++) {
+            GameState state = new GameState();
+            BaselineRules baseline = new BaselineRules();
+            while (true) {
+                assertSamePosition(baseline, state);
+                int count = state.legalMoves(moves);
+                assertEquals(count, state.legalMoveCount());
+                boolean[] legal = new boolean[Move.COUNT];
+                for (int i = 0; i < count; i++) legal[moves[i]] = true;
+                for (int move = 0; move < Move.COUNT; move++) {
+                    int sb = Move.subBoardOf(move);
+                    int cell = Move.cellOf(move);
+                    assertEquals(baseline.isLegal(sb, cell / 3, cell % 3), legal[move], "legality of " + move);
+                    assertEquals(legal[move], (state.legalCellMask(sb) >>> cell & 1) != 0);
+                }
+                if (count == 0) break;
+                int move = moves[random.nextInt(count)];
+                int cell = Move.cellOf(move);
+                assertTrue(baseline.makeMove(Move.subBoardOf(move), cell / 3, cell % 3));
+                assertTrue(state.makeMove(move));
+            }
+            assertTrue(state.isGameOver() || state.isDraw());
+        }
+    }
+
+    @Test
+    void rejectsIllegalMovesWithoutChangingThePosition() {
+        SplittableRandom random = new SplittableRandom(2);
+        int[] moves = new int[Move.COUNT];
+        GameState state = new GameState();
+        for (int g = 0; g < 1000; g++) {
+            state.reset();
+            for (int n = state.legalMoves(moves); n != 0; n = state.legalMoves(moves)) {
+                boolean[] legal = new boolean[Move.COUNT];
+                for (int i = 0; i < n; i++) legal[moves[i]] = true;
+                long hash = state.getHash();
+                int plies = state.getMoveLog().size();
+                for (int move = 0; move < Move.COUNT; move++) {
+                    if (legal[move]) continue;
+                    assertFalse(state.makeMove(move));
+                    assertEquals(hash, state.getHash());
+                    assertEquals(plies, state.getMoveLog().size());
+                }
+                state.makeMove(moves[random.nextInt(n)]);
+            }
+        }
+    }
+
+    @Test
+    void undoRestoresEveryEarlierPosition() {
+        SplittableRandom random = new SplittableRandom(3);
+        int[] moves = new int[Move.COUNT];
+        GameState state = new GameState();
+        for (int g = 0; g < GAMES; g++) {
+            state.reset();
+            long[] hashes = new long[Move.COUNT + 1];
+            int[][] masks = new int[Move.COUNT + 1][];
+            int plies = 0;
+            hashes[0] = state.getHash();
+            masks[0] = masks(state);
+            for (int n = state.legalMoves(moves); n != 0; n = state.legalMoves(moves)) {
+                state.makeMove(moves[random.nextInt(n)]);
+                plies++;
+                hashes[plies] = state.getHash();
+                masks[plies] = masks(state);
+            }
+            for (int p = plies; p > 0; p--) {
+                if (random.nextBoolean()) {
+                    assertTrue(state.undoMove());
+                } else {
+                    state.unmakeMove(state.lastMoveToken());
+                }
+                assertEquals(hashes[p - 1], state.getHash(), "hash after undoing to ply " + (p - 1));
+                assertArrayEquals(masks[p - 1], masks(state), "position after undoing to ply " + (p - 1));
+                assertEquals(p - 1, state.getMoveLog().size());
+            }
+            assertFalse(state.undoMove());
+            assertEquals(-1, state.getLastMove());
+        }
+    }
+
+    @Test
+    void incrementalHashMatchesRecomputation() {
+        SplittableRandom random = new SplittableRandom(4);
+        int[] moves = new int[Move.COUNT];
+        GameState state = new GameState();
+        for (int g = 0; g < GAMES; g++) {
+            state.reset();
+            assertEquals(scratchHash(state), state.getHash());
+            for (int n = state.legalMoves(moves); n != 0; n = state.legalMoves(moves)) {
+                int move = moves[random.nextInt(n)];
+                state.makeMove(move);
+                assertEquals(scratchHash(state), state.getHash());
+                // Undo and redo reach the same key
+                long hash = state.getHash();
+                state.undoMove();
+                state.makeMove(move);
+                assertEquals(hash, state.getHash());
+            }
+        }
+    }
+
+    @Test
+    void positionBuiltWithSettersHasTheSameHash() {
+        SplittableRandom random = new SplittableRandom(5);
+        int[] moves = new int[Move.COUNT];
+        GameState played = new GameState();
+        for (int g = 0; g < 2000; g++) {
+            played.reset();
+            int plies = random.nextInt(60);
+            for (int p = 0; p < plies; p++) {
+                int n = played.legalMoves(moves);
+                if (n == 0) break;
+                played.makeMove(moves[random.nextInt(n)]);
+            }
+            GameState set = new GameState();
+            set.setCurrentPlayer(played.getCurrentPlayer());
+            set.setNextActiveSubBoard(played.getNextActiveSubBoard());
+            for (int sb = 0; sb < 9; sb++) {
+                for (int c = 0; c < 9; c++) set.setCell(sb, c / 3, c % 3, played.getCell(sb, c / 3, c % 3));
+                set.setSubBoardWinner(sb, played.getSubBoardWinner(sb));
+            }
+            assertEquals(played.getHash(), set.getHash());
+            assertArrayEquals(masks(played), masks(set));
+            assertEquals(played.legalMoveCount(), set.legalMoveCount());
+        }
+    }
+
+    @Test
+    void replayRebuildsTheGameFromItsLog() {
+        SplittableRandom random = new SplittableRandom(6);
+        int[] moves = new int[Move.COUNT];
+        GameState state = new GameState();
+        GameState copy = new GameState();
+        for (int g = 0; g < 1000; g++) {
+            state.reset();
+            for (int n = state.legalMoves(moves); n != 0; n = state.legalMoves(moves)) {
+                state.makeMove(moves[random.nextInt(n)]);
+            }
+            assertTrue(copy.replay(state.getMoveLog(), state.getMoveLog().size()));
+            assertEquals(state.getHash(), copy.getHash());
+            assertEquals(state.getGameWinner(), copy.getGameWinner());
+        }
+    }
+
+    private static void assertSamePosition(BaselineRules baseline, GameState state) {
+        for (int sb = 0; sb < 9; sb++) {
+            for (int c = 0; c < 9; c++) {
+                assertEquals(baseline.getCell(sb, c / 3, c % 3), state.getCell(sb, c / 3, c % 3));
+            }
+            assertEquals(baseline.getSubBoardWinner(sb), state.getSubBoardWinner(sb));
+            assertEquals(baseline.isSubBoardFull(sb), state.isSubBoardFull(sb));
+        }
+        assertEquals(baseline.getCurrentPlayer(), state.getCurrentPlayer());
+        assertEquals(baseline.getNextActiveSubBoard(), state.getNextActiveSubBoard());
+        assertEquals(baseline.getGameWinner(), state.getGameWinner());
+        assertEquals(baseline.isGameOver(), state.isGameOver());
+        assertEquals(baseline.isDraw(), state.isDraw());
+    }
+
+    private static int[] masks(GameState state) {
+        int[] masks = new int[22];
+        for (int sb = 0; sb < 9; sb++) {
+            masks[sb] = state.getCellMask(Player.X, sb);
+            masks[9 + sb] = state.getCellMask(Player.O, sb);
+        }
+        masks[18] = state.getWonMask(Player.X);
+        masks[19] = state.getWonMask(Player.O);
+        masks[20] = state.getNextActiveSubBoard();
+        masks[21] = state.getCurrentPlayer().ordinal();
+        return masks;
+    }
+
+    private static long scratchHash(GameState state) {
+        long hash = Zobrist.NEXT[state.getNextActiveSubBoard() + 2];
+        if (state.getCurrentPlayer() == Player.O) hash ^= Zobrist.O_TO_MOVE;
+        for (int sb = 0; sb < 9; sb++) {
+            for (int c = 0; c < 9; c++) hash ^= Zobrist.cell(state.getCell(sb, c / 3, c % 3), sb * 9 + c);
+            hash ^= Zobrist.won(state.getSubBoardWinner(sb), sb);
+        }
+        return hash;
+    }
+}
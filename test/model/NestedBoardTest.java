@@ -0,0 +1,89 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a depth 2 NestedBoard plays the classic game exactly like
+ * GameState, and that deeper boards undo back to every earlier position.
+ */
+class NestedBoardTest {
+
+    @Test
+    void depthTwoMatchesGameStateOnRandomGames() {
+        SplittableRandom random = new SplittableRandom(7);
+        NestedBoard board = new NestedBoard(2);
+        GameState state = new GameState();
+        int[] nested = new int[board.getLegalMoveCapacity()];
+        int[] classic = new int[Move.COUNT];
+        for (int g = 0; g < 20_000; g++) {
+            board.reset();
+            state.reset();
+            while (true) {
+                int n = board.legalMoves(nested);
+                int count = state.legalMoves(classic);
+                Arrays.sort(nested, 0, n);
+                Arrays.sort(classic, 0, count);
+                assertArrayEquals(Arrays.copyOf(classic, count), Arrays.copyOf(nested, n));
+                // Only while moves remain: after a drawn last move GameState passes the turn, NestedBoard does not
+                if (count > 0) assertEquals(state.getCurrentPlayer(), board.getCurrentPlayer());
+                assertEquals(state.getGameWinner(), board.getWinner());
+                for (int sb = 0; sb < 9; sb++) {
+                    assertEquals(state.getSubBoardWinner(sb), board.getOwner(1, sb));
+                    assertEquals(state.getCellMask(Player.X, sb), board.getChildMask(Player.X, 1, sb));
+                    assertEquals(state.getCellMask(Player.O, sb), board.getChildMask(Player.O, 1, sb));
+                }
+                if (count == 0) {
+                    assertTrue(board.isGameOver());
+                    assertEquals(state.isDraw(), board.isDraw());
+                    break;
+                }
+                int move = classic[random.nextInt(count)];
+                assertTrue(board.makeMove(move));
+                assertTrue(state.makeMove(move));
+            }
+        }
+    }
+
+    @Test
+    void undoRestoresEveryEarlierPosition() {
+        SplittableRandom random = new SplittableRandom(8);
+        for (int depth = 1; depth <= 3; depth++) {
+            NestedBoard board = new NestedBoard(depth);
+            int[] moves = new int[board.getLegalMoveCapacity()];
+            for (int g = 0; g < 200; g++) {
+                board.reset();
+                List<int[]> positions = new ArrayList<>();
+                positions.add(legal(board, moves));
+                for (int n = board.legalMoves(moves); n != 0; n = board.legalMoves(moves)) {
+                    assertTrue(board.makeMove(moves[random.nextInt(n)]));
+                    positions.add(legal(board, moves));
+                }
+                for (int p = positions.size() - 1; p > 0; p--) {
+                    assertTrue(board.undoMove());
+                    assertArrayEquals(positions.get(p - 1), legal(board, moves), "depth " + depth + " ply " + (p - 1));
+                }
+                assertFalse(board.undoMove());
+            }
+        }
+    }
+
+    // The legal moves, side to move and board owners, as one comparable array
+    private static int[] legal(NestedBoard board, int[] buffer) {
+        int n = board.legalMoves(buffer);
+        int[] snapshot = Arrays.copyOf(buffer, n + 2 + board.getNodeCount(1));
+        Arrays.sort(snapshot, 0, n);
+        snapshot[n] = board.getCurrentPlayer().ordinal();
+        snapshot[n + 1] = board.getWinner().ordinal();
+        for (int i = 0; i < board.getNodeCount(1); i++) {
+            snapshot[n + 2 + i] = board.getOwner(1, i).ordinal() | (board.isClosed(1, i) ? 4 : 0);
+        }
+        return snapshot;
+    }
+}
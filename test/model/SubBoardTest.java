@@ -0,0 +1,52 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the 3^9 lookup tables against a direct scan of every board.
+ */
+class SubBoardTest {
+    private static final int[] LINES = {0007, 0070, 0700, 0111, 0222, 0444, 0421, 0124};
+
+    @Test
+    void tablesMatchEveryBoard() {
+        boolean[] seen = new boolean[SubBoard.STATES];
+        for (int x = 0; x <= GameState.FULL; x++) {
+            for (int o = 0; o <= GameState.FULL; o++) {
+                if ((x & o) != 0) continue;
+                int index = SubBoard.index(x, o);
+                assertFalse(seen[index], "index " + index + " used twice");
+                seen[index] = true;
+
+                boolean xLine = hasLine(x);
+                boolean oLine = hasLine(o);
+                boolean full = (x | o) == GameState.FULL;
+                Player winner = xLine ? Player.X : oLine ? Player.O : Player.NONE;
+                assertEquals(winner, SubBoard.winner(index));
+                assertEquals(xLine || oLine, SubBoard.isWon(index));
+                assertEquals(full, SubBoard.isFull(index));
+                assertEquals(xLine || oLine || full, SubBoard.isClosed(index));
+                assertEquals(threats(x, o), SubBoard.threats(index, Player.X));
+                assertEquals(threats(o, x), SubBoard.threats(index, Player.O));
+            }
+        }
+        for (boolean s : seen) assertTrue(s);
+    }
+
+    private static boolean hasLine(int mask) {
+        for (int line : LINES) {
+            if ((mask & line) == line) return true;
+        }
+        return false;
+    }
+
+    private static int threats(int own, int other) {
+        int count = 0;
+        for (int line : LINES) {
+            if ((other & line) == 0 && Integer.bitCount(own & line) == 2) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,120 @@
+package persistence;
+
+import model.GameState;
+import model.Move;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips of the binary and text save formats.
+ */
+class GamePersistenceTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void binaryRoundTripKeepsPositionAndUndoHistory() throws IOException {
+        SplittableRandom random = new SplittableRandom(11);
+        int[] moves = new int[Move.COUNT];
+        GameState state = new GameState();
+        for (int g = 0; g < 2000; g++) {
+            state.reset();
+            while (true) {
+                GameState loaded = GamePersistence.fromBytes(GamePersistence.toBytes(state));
+                assertSameGame(state, loaded);
+                assertEquals(state.getLastMove(), loaded.getLastMove());
+                int n = state.legalMoves(moves);
+                if (n == 0) break;
+                state.makeMove(moves[random.nextInt(n)]);
+            }
+        }
+    }
+
+    @Test
+    void binaryLoadDetectsCorruption() {
+        GameState state = new GameState();
+        state.makeMove(40);
+        state.makeMove(36);
+        byte[] bytes = GamePersistence.toBytes(state);
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[i] ^= 0x10;
+            assertThrows(IOException.class, () -> GamePersistence.fromBytes(corrupt), "flipped byte " + i);
+        }
+    }
+
+    @Test
+    void textAndBinaryFilesLoadTheSameGame() throws IOException {
+        SplittableRandom random = new SplittableRandom(12);
+        int[] moves = new int[Move.COUNT];
+        GameState state = new GameState();
+        for (int p = 0; p < 30; p++) {
+            state.makeMove(moves[random.nextInt(state.legalMoves(moves))]);
+        }
+        File text = dir.resolve("save.txt").toFile();
+        File binary = dir.resolve("save.bin").toFile();
+        GamePersistence.saveAsText(state, text);
+        GamePersistence.saveAsBinary(state, binary);
+        assertSameGame(state, GamePersistence.loadFromText(text));
+        assertSameGame(state, GamePersistence.loadFromText(binary));
+        assertSameGame(state, GamePersistence.loadFromBinary(binary));
+    }
+
+    @Test
+    void textLoadRejectsOutOfRangeNumbers() throws IOException {
+        GameState state = new GameState();
+        state.makeMove(40);
+        state.makeMove(36);
+        File file = dir.resolve("save.txt").toFile();
+        GamePersistence.saveAsText(state, file);
+        String saved = Files.readString(file.toPath());
+        assertSameGame(state, GamePersistence.loadFromText(file));
+
+        String[] edits = {
+                saved.replaceFirst("board 4,", "board 12,"),
+                saved.replaceFirst("box 4", "box -1"),
+                saved.replaceFirst("\n0\n", "\n9\n"),
+                saved.replaceFirst("\n0\n", "\n-3\n"),
+        };
+        for (String edited : edits) {
+            assertNotEquals(saved, edited);
+            Files.writeString(file.toPath(), edited);
+            assertThrows(IOException.class, () -> GamePersistence.loadFromText(file));
+        }
+    }
+
+    @Test
+    void binaryLoadFallsBackOnAnOutOfRangeMove() throws IOException {
+        GameState state = new GameState();
+        state.makeMove(40);
+        byte[] bytes = GamePersistence.toBytes(state);
+        // A move byte past the board, with a checksum that still matches
+        bytes[bytes.length - 5] = 100;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        ByteBuffer.wrap(bytes).putInt(bytes.length - 4, (int) crc.getValue());
+        GameState loaded = GamePersistence.fromBytes(bytes);
+        assertEquals(state.getHash(), loaded.getHash());
+    }
+
+    static void assertSameGame(GameState expected, GameState actual) {
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.getMoveLog().size(), actual.getMoveLog().size());
+        for (int i = 0; i < expected.getMoveLog().size(); i++) {
+            assertEquals(expected.getMoveLog().packed(i), actual.getMoveLog().packed(i), "move " + i);
+        }
+        assertEquals(expected.getCurrentPlayer(), actual.getCurrentPlayer());
+        assertEquals(expected.getNextActiveSubBoard(), actual.getNextActiveSubBoard());
+        assertEquals(expected.getGameWinner(), actual.getGameWinner());
+    }
+}
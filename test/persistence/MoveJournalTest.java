@@ -0,0 +1,140 @@
+package persistence;
+
+import model.GameState;
+import model.Move;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static persistence.GamePersistenceTest.assertSameGame;
+
+/**
+ * Recovery of journalled games: moves, undos, history rewritten between
+ * updates, torn records, and the coalesced autosaves of SaveService.
+ */
+class MoveJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversMovesAndUndos() throws IOException {
+        File file = dir.resolve("game.journal").toFile();
+        SplittableRandom random = new SplittableRandom(21);
+        GameState state = new GameState();
+        try (MoveJournal journal = MoveJournal.open(file, state, false)) {
+            for (int step = 0; step < 2000; step++) {
+                change(state, random);
+                journal.update(state);
+                if (step % 37 == 0) assertSameGame(state, MoveJournal.recover(file));
+            }
+        }
+        assertSameGame(state, MoveJournal.recover(file));
+    }
+
+    @Test
+    void recoversWhenHistoryIsRewrittenBetweenUpdates() throws IOException {
+        File file = dir.resolve("game.journal").toFile();
+        GameState state = new GameState();
+        try (MoveJournal journal = MoveJournal.open(file, state, false)) {
+            for (int p = 0; p < 11; p++) {
+                play(state, false);
+                journal.update(state);
+            }
+            // Undo one move and play two others: one ply longer than the journal
+            state.undoMove();
+            play(state, true);
+            play(state, false);
+            journal.update(state);
+            assertSameGame(state, MoveJournal.recover(file));
+
+            // Go back three moves and play another: shorter than the journal
+            state.undoMove();
+            state.undoMove();
+            state.undoMove();
+            play(state, true);
+            journal.update(state);
+            assertSameGame(state, MoveJournal.recover(file));
+        }
+    }
+
+    @Test
+    void ignoresATornRecord() throws IOException {
+        File file = dir.resolve("game.journal").toFile();
+        GameState state = new GameState();
+        try (MoveJournal journal = MoveJournal.open(file, state, false)) {
+            for (int p = 0; p < 5; p++) {
+                play(state, false);
+                journal.update(state);
+            }
+        }
+        GameState before = MoveJournal.recover(file);
+        state.undoMove();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);        // the last record loses its checksum
+        }
+        assertSameGame(state, MoveJournal.recover(file));
+        assertEquals(5, before.getMoveLog().size());
+    }
+
+    @Test
+    void coalescedAutosavesRecoverTheLastPosition() throws IOException {
+        SplittableRandom random = new SplittableRandom(22);
+        File file = dir.resolve("autosave.journal").toFile();
+        for (int round = 0; round < 50; round++) {
+            GameState state = new GameState();
+            for (int i = 0; i < 20; i++) change(state, random);
+            // A long interval, so every change below is coalesced until close()
+            try (SaveService saves = new SaveService(60_000)) {
+                saves.startJournal(file, state);
+                for (int i = 1 + random.nextInt(8); i > 0; i--) {
+                    change(state, random);
+                    saves.autosave(state);
+                }
+            }
+            assertSameGame(state, MoveJournal.recover(file));
+        }
+    }
+
+    @Test
+    void autosaveOfUndoThenTwoMovesRecoversTheLivePosition() throws IOException {
+        File file = dir.resolve("autosave.journal").toFile();
+        GameState state = new GameState();
+        for (int p = 0; p < 11; p++) play(state, false);
+        try (SaveService saves = new SaveService(60_000)) {
+            saves.startJournal(file, state);          // the journal holds ply 11
+            state.undoMove();
+            saves.autosave(state);
+            play(state, true);
+            saves.autosave(state);
+            play(state, false);
+            saves.autosave(state);
+        }
+        assertEquals(12, state.getMoveLog().size());
+        assertSameGame(state, MoveJournal.recover(file));
+    }
+
+    // Plays the first or the last legal move; after an undo they differ
+    private static void play(GameState state, boolean last) {
+        int[] moves = new int[Move.COUNT];
+        int n = state.legalMoves(moves);
+        assertTrue(n > 1);
+        state.makeMove(moves[last ? n - 1 : 0]);
+    }
+
+    // One random move, or an undo once in a while
+    private static void change(GameState state, SplittableRandom random) {
+        int[] moves = new int[Move.COUNT];
+        int n = state.legalMoves(moves);
+        if (n == 0 || (random.nextInt(4) == 0 && state.getMoveLog().size() > 0)) {
+            if (!state.undoMove()) state.reset();
+        } else {
+            state.makeMove(moves[random.nextInt(n)]);
+        }
+    }
+}